@@ -0,0 +1,61 @@
+package armybuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Benchmarks a full battle between two fixed armies on every battlefield size and objective combination.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class BattleBenchmark {
+
+    @Param({"0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10"})
+    int size;
+
+    @Param({"0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10"})
+    int objectives;
+
+    Army armyA;
+    Army armyB;
+    Battlefield battlefield;
+
+    @Setup
+    public void setUp() {
+        List<Unit> units = new Codex().getUnits();
+
+        // Spartan, Grunt, Jackal, ODST and Marine against Elite, Brute, Warthog, Ghost and Chopper.
+        armyA = new Army();
+        for (int index : new int[] {0, 2, 3, 5, 10}) {
+            armyA.addUnit(units.get(index));
+        }
+        armyB = new Army();
+        for (int index : new int[] {1, 6, 7, 8, 16}) {
+            armyB.addUnit(units.get(index));
+        }
+        battlefield = new Battlefield(size, objectives);
+    }
+
+    @Benchmark
+    public void battle(Blackhole blackhole) {
+        blackhole.consume(BattleSimulator.Battle(armyA, armyB, battlefield));
+    }
+}
@@ -0,0 +1,84 @@
+package armybuilder;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Benchmarks the throughput of combat between pairs of units.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CombatBenchmark {
+
+    // Number of combats resolved per benchmark invocation.
+    static final int PAIRINGS = 1024;
+
+    Unit[] attackers = new Unit[PAIRINGS];
+    Unit[] defenders = new Unit[PAIRINGS];
+    int[] distances = new int[PAIRINGS];
+    CombatBatch batch = new CombatBatch(PAIRINGS);
+
+    // Draws a fixed set of random pairings and distances from the codex.
+    @Setup
+    public void setUp() {
+        List<Unit> units = new Codex().getUnits();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < PAIRINGS; i++) {
+            attackers[i] = units.get(random.nextInt(units.size()));
+            defenders[i] = units.get(random.nextInt(units.size()));
+            distances[i] = random.nextInt(11);
+            batch.add(attackers[i], defenders[i], distances[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRINGS)
+    public void combat(Blackhole blackhole) {
+        for (int i = 0; i < PAIRINGS; i++) {
+            blackhole.consume(UnitCombat.Combat(attackers[i], defenders[i], distances[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRINGS)
+    public void resolve(Blackhole blackhole) {
+        for (int i = 0; i < PAIRINGS; i++) {
+            blackhole.consume(UnitCombat.resolve(attackers[i], defenders[i], distances[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRINGS)
+    @Fork(value = 1, jvmArgsAppend = "-Darmybuilder.vector=false")
+    public void resolveBatchScalar(Blackhole blackhole) {
+        batch.resolve();
+        blackhole.consume(batch.results);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRINGS)
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    public void resolveBatchVector(Blackhole blackhole) {
+        batch.resolve();
+        blackhole.consume(batch.results);
+    }
+}
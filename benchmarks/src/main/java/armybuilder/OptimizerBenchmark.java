@@ -0,0 +1,59 @@
+package armybuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Benchmarks building the optimal army across roster sizes and point budgets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OptimizerBenchmark {
+
+    @Param({"20", "100", "500"})
+    int rosterSize;
+
+    @Param({"600", "2000", "10000"})
+    int maxPoints;
+
+    List<Unit> roster;
+
+    // Builds a roster of the requested size by cycling through the codex.
+    @Setup
+    public void setUp() {
+        List<Unit> units = new Codex().getUnits();
+        roster = new ArrayList<>();
+        for (int i = 0; i < rosterSize; i++) {
+            roster.add(units.get(i % units.size()));
+        }
+    }
+
+    @Benchmark
+    public void buildOptimalArmy(Blackhole blackhole) {
+        blackhole.consume(ArmyOptimizer.buildOptimalArmy(roster, maxPoints));
+    }
+
+    @Benchmark
+    public void buildOptimalArmyCompact(Blackhole blackhole) {
+        blackhole.consume(ArmyOptimizer.buildOptimalArmyCompact(roster, maxPoints));
+    }
+}
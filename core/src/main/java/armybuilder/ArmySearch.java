@@ -0,0 +1,388 @@
+package armybuilder;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ *  Class that searches for the army that beats a given opponent most often, as measured by simulated
+ *  battles, rather than the army with the highest summed effectiveness. The search is a genetic algorithm
+ *  over codex selections within the point budget and each unit's copy limit: the fittest armies of each
+ *  generation are kept, and the rest of the next generation is bred from armies picked by tournament
+ *  selection, by taking each unit's count from either parent, mutating and repairing the result.
+ *
+ *  Every candidate is scored by its win rate over a number of battles against the opponent, fought in
+ *  batches with the candidates of a generation spread across a fork-join pool. A candidate stops getting
+ *  battles once the upper bound of its win rate's 95% confidence interval falls below the lower bound of
+ *  the best army found in earlier generations, and the fitness of every army is cached, so armies that
+ *  reappear in later generations aren't simulated again. The same seed always gives the same result.
+ *
+ *  The search takes no battlefield, as no battle outcome depends on it (see BattleKernel), so an army that
+ *  beats the opponent most often does so on every battlefield.
+ */
+class ArmySearch {
+
+    // Number of battles a candidate fights between checks of whether it is clearly worse than the best army.
+    static final int TRIALS_PER_BATCH = 256;
+
+    // Number of armies kept unchanged from one generation to the next.
+    static final int ELITE_COUNT = 4;
+
+    // Number of armies competing in each tournament selection.
+    static final int TOURNAMENT_SIZE = 3;
+
+    // Chance of mutating each bred army.
+    static final double MUTATION_RATE = 0.3;
+
+    // Kernel reused by each worker thread across candidates.
+    private static final ThreadLocal<BattleKernel> kernels = ThreadLocal.withInitial(() -> {
+        BattleKernel kernel = new BattleKernel();
+        kernel.setShortCircuit(true);
+        return kernel;
+    });
+
+    private final Codex codex;
+    private final CodexIndex index;
+    private final int[] copyLimits;
+    private final Army opponent;
+    private final int maxPoints;
+    private final long seed;
+
+    private int populationSize = 32;
+    private int maxTrials = 4096;
+
+    // Fitness of every army evaluated so far.
+    private final Map<CompactArmy, MonteCarloResult> fitnessCache = new ConcurrentHashMap<>();
+
+    private final LongAdder trials = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder prunedArmies = new LongAdder();
+
+    // Initializes a search for the army built from the codex, within the point budget and each unit's copy
+    // limit, that most often beats the opponent.
+    public ArmySearch(Codex codex, Army opponent, int maxPoints, long seed) {
+        this.codex = codex;
+        this.index = new CodexIndex(codex);
+        this.opponent = opponent;
+        this.maxPoints = maxPoints;
+        this.seed = seed;
+
+        this.copyLimits = new int[index.size()];
+        for (int i = 0; i < copyLimits.length; i++) {
+            Unit unit = index.getUnit(i);
+            int limit = codex.getCopyLimit(unit);
+            if (limit == Codex.UNLIMITED) {
+                if (unit.pointCost <= 0) {
+                    throw new IllegalArgumentException(unit.name + " costs no points and cannot have unlimited copies");
+                }
+                limit = Math.max(maxPoints, 0) / unit.pointCost;
+            }
+            copyLimits[i] = Math.min(limit, Short.MAX_VALUE);
+        }
+    }
+
+    // Sets the number of armies in each generation.
+    public void setPopulationSize(int populationSize) {
+        if (populationSize < 1) {
+            throw new IllegalArgumentException("Population size must be positive");
+        }
+        this.populationSize = populationSize;
+    }
+
+    // Sets the most battles fought to score a single army.
+    public void setMaxTrials(int maxTrials) {
+        if (maxTrials < 1) {
+            throw new IllegalArgumentException("Trials per army must be positive");
+        }
+        this.maxTrials = maxTrials;
+    }
+
+    // Runs the search for the given number of generations on the common fork-join pool.
+    public SearchResult run(int generations) {
+        return run(generations, ForkJoinPool.commonPool());
+    }
+
+    // Runs the search for the given number of generations on the given pool and returns the best army found.
+    public SearchResult run(int generations, ForkJoinPool pool) {
+
+        if (generations < 1) {
+            throw new IllegalArgumentException("The search must run at least one generation");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+
+        // Starts from the army with the highest summed effectiveness and fills the rest with random armies.
+        List<CompactArmy> population = new ArrayList<>();
+        population.add(CompactArmy.of(index, ArmyOptimizer.buildOptimalArmy(codex, maxPoints)));
+        while (population.size() < populationSize) {
+            CompactArmy army = new CompactArmy(index);
+            fill(army, random);
+            population.add(army);
+        }
+
+        CompactArmy best = null;
+        double threshold = 0.0;
+        int generation = 0;
+        while (true) {
+            // Evaluates each distinct army once, fittest first.
+            List<CompactArmy> candidates = new ArrayList<>(new LinkedHashSet<>(population));
+            pool.invoke(new EvaluationTask(candidates, 0, candidates.size(), threshold));
+            candidates.sort(Comparator.comparingDouble((CompactArmy army) -> getWinRate(army)).reversed());
+
+            if (best == null || getWinRate(candidates.get(0)) > getWinRate(best)) {
+                best = candidates.get(0);
+            }
+            threshold = Math.max(threshold, fitnessCache.get(best).armyAWinInterval().lower);
+
+            generation++;
+            if (generation >= generations) {
+                break;
+            }
+
+            // Keeps the elite and breeds the rest of the next generation.
+            List<CompactArmy> next = new ArrayList<>(candidates.subList(0, Math.min(ELITE_COUNT, candidates.size())));
+            while (next.size() < populationSize) {
+                CompactArmy child = crossover(select(candidates, random), select(candidates, random), random);
+                if (random.nextDouble() < MUTATION_RATE) {
+                    mutate(child, random);
+                }
+                repair(child, random);
+                next.add(child);
+            }
+            population = next;
+        }
+
+        return new SearchResult(best.toArmy(), fitnessCache.get(best), generation, fitnessCache.size(),
+                                trials.sum(), cacheHits.sum(), prunedArmies.sum());
+    }
+
+    // Retrieves and returns the estimated rate at which an evaluated army beats the opponent.
+    private double getWinRate(CompactArmy army) {
+        return fitnessCache.get(army).armyAWinRate();
+    }
+
+    // Scores an army by fighting the opponent in batches, stopping early once the army's win rate is
+    // clearly below the threshold. Armies already scored are taken from the cache.
+    private void evaluate(CompactArmy army, double threshold) {
+        if (fitnessCache.containsKey(army)) {
+            cacheHits.increment();
+            return;
+        }
+
+        BattleKernel kernel = kernels.get();
+        kernel.load(army.toArmy(), opponent);
+
+        // Seeds each army from its units, so its score doesn't depend on which thread evaluates it.
+        SplittableRandom random = new SplittableRandom(Seeds.forIndex(seed, army.hashCode()));
+        MonteCarloResult result = new MonteCarloResult(0, 0, 0);
+        while (result.getTrials() < maxTrials) {
+            int batch = (int) Math.min(TRIALS_PER_BATCH, maxTrials - result.getTrials());
+            long wins = 0;
+            long losses = 0;
+            long draws = 0;
+            for (int trial = 0; trial < batch; trial++) {
+                switch (kernel.run(random)) {
+                    case ARMY_A_WINS:
+                        wins++;
+                        break;
+                    case ARMY_B_WINS:
+                        losses++;
+                        break;
+                    default:
+                        draws++;
+                        break;
+                }
+            }
+            result = result.merge(new MonteCarloResult(wins, losses, draws));
+
+            if (result.getTrials() < maxTrials && result.armyAWinInterval().upper < threshold) {
+                prunedArmies.increment();
+                result = result.shortCircuit();
+                break;
+            }
+        }
+        trials.add(result.getTrials());
+        fitnessCache.put(army, result);
+    }
+
+    // Picks the fittest of a few randomly chosen armies.
+    private CompactArmy select(List<CompactArmy> candidates, SplittableRandom random) {
+        CompactArmy selected = candidates.get(random.nextInt(candidates.size()));
+        for (int i = 1; i < TOURNAMENT_SIZE; i++) {
+            CompactArmy contender = candidates.get(random.nextInt(candidates.size()));
+            if (getWinRate(contender) > getWinRate(selected)) {
+                selected = contender;
+            }
+        }
+        return selected;
+    }
+
+    // Breeds an army taking each unit's count from one of the two parents at random.
+    private CompactArmy crossover(CompactArmy parentA, CompactArmy parentB, SplittableRandom random) {
+        CompactArmy child = new CompactArmy(index);
+        for (int i = 0; i < index.size(); i++) {
+            int count = random.nextBoolean() ? parentA.getCount(i) : parentB.getCount(i);
+            for (int copy = 0; copy < count; copy++) {
+                child.add(i);
+            }
+        }
+        return child;
+    }
+
+    // Removes one or two random units from the army.
+    private void mutate(CompactArmy army, SplittableRandom random) {
+        int removals = 1 + random.nextInt(2);
+        for (int i = 0; i < removals && army.getUnitCount() > 0; i++) {
+            removeRandomUnit(army, random);
+        }
+    }
+
+    // Removes random units until the army is within the budget, then fills it up again.
+    private void repair(CompactArmy army, SplittableRandom random) {
+        while (army.calculateTotalPoints() > maxPoints) {
+            removeRandomUnit(army, random);
+        }
+        fill(army, random);
+    }
+
+    // Adds random units that fit within the budget and their copy limits until no more fit.
+    private void fill(CompactArmy army, SplittableRandom random) {
+        int[] affordable = new int[index.size()];
+        while (true) {
+            int count = 0;
+            int remaining = maxPoints - army.calculateTotalPoints();
+            for (int i = 0; i < affordable.length; i++) {
+                if (army.getCount(i) < copyLimits[i] && index.pointCosts[i] <= remaining) {
+                    affordable[count++] = i;
+                }
+            }
+            if (count == 0) {
+                return;
+            }
+            army.add(affordable[random.nextInt(count)]);
+        }
+    }
+
+    // Removes one random unit from the army, picking each unit in the army with equal chance.
+    private void removeRandomUnit(CompactArmy army, SplittableRandom random) {
+        int target = random.nextInt(army.getUnitCount());
+        for (int i = 0; i < index.size(); i++) {
+            target -= army.getCount(i);
+            if (target < 0) {
+                army.remove(i);
+                return;
+            }
+        }
+    }
+
+
+    /**
+     *  Task that evaluates a range of candidates, splitting it in half until a single candidate remains.
+     */
+    private final class EvaluationTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<CompactArmy> candidates;
+        private final int from;
+        private final int to;
+        private final double threshold;
+
+        EvaluationTask(List<CompactArmy> candidates, int from, int to, double threshold) {
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new EvaluationTask(candidates, from, middle, threshold),
+                          new EvaluationTask(candidates, middle, to, threshold));
+                return;
+            }
+            if (from < to) {
+                evaluate(candidates.get(from), threshold);
+            }
+        }
+    }
+}
+
+
+/**
+ *  Class to represent the outcome of an army search: the best army found, its simulated results against
+ *  the opponent, and how much work the search did.
+ */
+class SearchResult {
+
+    private final Army army;
+    private final MonteCarloResult fitness;
+    private final int generations;
+    private final int armiesEvaluated;
+    private final long trials;
+    private final long cacheHits;
+    private final long prunedArmies;
+
+    SearchResult(Army army, MonteCarloResult fitness, int generations, int armiesEvaluated, long trials,
+                 long cacheHits, long prunedArmies) {
+        this.army = army;
+        this.fitness = fitness;
+        this.generations = generations;
+        this.armiesEvaluated = armiesEvaluated;
+        this.trials = trials;
+        this.cacheHits = cacheHits;
+        this.prunedArmies = prunedArmies;
+    }
+
+    public Army getArmy() {
+        return army;
+    }
+
+    // Retrieves and returns the simulated results of the best army against the opponent.
+    public MonteCarloResult getFitness() {
+        return fitness;
+    }
+
+    public double getWinRate() {
+        return fitness.armyAWinRate();
+    }
+
+    public int getGenerations() {
+        return generations;
+    }
+
+    // Retrieves and returns the number of distinct armies that were simulated.
+    public int getArmiesEvaluated() {
+        return armiesEvaluated;
+    }
+
+    // Retrieves and returns the total number of battles fought.
+    public long getTrials() {
+        return trials;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    // Retrieves and returns the number of armies that stopped getting battles because they were clearly worse.
+    public long getPrunedArmies() {
+        return prunedArmies;
+    }
+
+    // Prints the best army and the search statistics in an organized format.
+    @Override
+    public String toString() {
+        return army + String.format("Win Rate: %.2f%% %s%n", 100 * getWinRate(), fitness.armyAWinInterval())
+            + String.format("Generations: %d, Armies Evaluated: %d, Battles: %d, Cache Hits: %d, Pruned: %d%n",
+                            generations, armiesEvaluated, trials, cacheHits, prunedArmies);
+    }
+}
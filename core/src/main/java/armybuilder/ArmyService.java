@@ -0,0 +1,470 @@
+package armybuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+
+/**
+ *  Class that serves the optimizer and battle simulations as JSON endpoints over HTTP:
+ *
+ *    GET  /codex     the units of the codex
+ *    POST /optimize  {"units": [names], "maxPoints": 600, "battlefield": {"size": 3, "objectives": 3}}
+ *    POST /battle    {"armyA": [names], "armyB": [names], "battlefield": {...}, "seed": 1}
+ *    POST /simulate  {"armyA": [names], "armyB": [names], "battlefield": {...}, "trials": 10000, "seed": 1,
+ *                     "decisiveRate": 0.99}
+ *    GET  /metrics   the counters of Metrics and of the service
+ *
+ *  Only "maxPoints", "armyA" and "armyB" are required; "units" defaults to the whole codex. Each request
+ *  runs on its own virtual thread when the JDK has them, or on a bounded pool of platform threads otherwise.
+ *
+ *  Identical optimize requests that arrive while one is being computed wait for its result instead of
+ *  computing it again. Work is admitted against a budget of heap bytes: every request reserves the memory
+ *  its knapsack tables or kernels will take before it starts, waits a short while for a reservation that
+ *  doesn't fit, and is turned away with 503 if it still doesn't, or with 413 if it could never fit.
+ */
+class ArmyService {
+
+    // Largest request body accepted.
+    static final int MAX_BODY_BYTES = 1 << 20;
+
+    // Most battles a single simulate request may fight.
+    static final long MAX_TRIALS = 10_000_000L;
+
+    // Time a request waits for its memory reservation before it is turned away.
+    static final long ADMISSION_TIMEOUT_MILLIS = 1000;
+
+    // Time an optimize request waits for an identical one being computed before it is turned away.
+    static final long COALESCED_TIMEOUT_MILLIS = 60_000;
+
+    private final Codex codex;
+    private final Map<String, Unit> unitsByName = new HashMap<>();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final MonteCarloSimulator monteCarlo = new MonteCarloSimulator();
+
+    // Heap budget in KiB, and the part of it not reserved by running requests.
+    private final int admissionKib;
+    private final Semaphore admission;
+
+    // Optimize requests being computed, keyed by roster, budget and battlefield.
+    private final Map<List<Object>, CompletableFuture<Army>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder coalescedRequests = new LongAdder();
+    private final LongAdder rejectedRequests = new LongAdder();
+
+    // Initializes a service for the codex listening on the given address, admitting work up to a quarter
+    // of the maximum heap at a time.
+    public ArmyService(Codex codex, InetSocketAddress address) throws IOException {
+        this(codex, address, Runtime.getRuntime().maxMemory() / 4);
+    }
+
+    // Initializes a service for the codex listening on the given address, admitting work up to the given
+    // number of heap bytes at a time.
+    public ArmyService(Codex codex, InetSocketAddress address, long maxInFlightBytes) throws IOException {
+        this.codex = codex;
+        for (Unit unit : codex.getUnits()) {
+            unitsByName.putIfAbsent(unit.name, unit);
+        }
+        this.admissionKib = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxInFlightBytes / 1024));
+        this.admission = new Semaphore(admissionKib, true);
+
+        this.executor = newRequestExecutor();
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/codex", exchange -> respond(exchange, "GET", request -> listCodex()));
+        server.createContext("/optimize", exchange -> respond(exchange, "POST", this::optimize));
+        server.createContext("/battle", exchange -> respond(exchange, "POST", this::battle));
+        server.createContext("/simulate", exchange -> respond(exchange, "POST", this::simulate));
+        server.createContext("/metrics", exchange -> respond(exchange, "GET", request -> metrics()));
+    }
+
+    // Starts the service on localhost, on the port given as the first argument or 8080.
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        ArmyService service = new ArmyService(new Codex(), new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        service.start();
+        System.out.println("Listening on http://localhost:" + service.getPort());
+    }
+
+    // Returns an executor that runs each request on a new virtual thread. Virtual threads are looked up
+    // reflectively so the service also runs on JDKs without them, where requests run on a fixed pool of
+    // platform threads instead.
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(4 * Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "army-service");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // Stops accepting requests, waiting up to the given number of seconds for running ones to finish.
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Lists the name, point cost and effectiveness of every unit in the codex.
+    private Map<String, Object> listCodex() {
+        List<Object> units = new ArrayList<>();
+        for (Unit unit : codex.getUnits()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", unit.name);
+            entry.put("pointCost", unit.pointCost);
+            entry.put("effectiveness", unit.profile().effectiveness);
+            units.add(entry);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("units", units);
+        return response;
+    }
+
+    // Builds the optimal army from the requested units, as ArmyOptimizer.optimize does, or for the
+    // battlefield if one is given.
+    private Map<String, Object> optimize(Map<String, Object> request) {
+        List<Unit> roster = request.containsKey("units") ? getUnits(request, "units") : codex.getUnits();
+        int maxPoints = getInt(request, "maxPoints", null);
+        if (maxPoints < 0) {
+            throw new IllegalArgumentException("maxPoints must not be negative");
+        }
+        Battlefield battlefield = getBattlefield(request);
+
+        // Reserves the knapsack tables of the solve: one row of values and a decision bit per unit and budget.
+        long columns = maxPoints + 1L;
+        long bytes = columns * Integer.BYTES + roster.size() * ((columns + 63) / 64) * Long.BYTES;
+
+        List<Object> key = List.of(new ArrayList<>(roster), maxPoints, battlefield == null ? -1 : battlefield.index());
+        CompletableFuture<Army> future = new CompletableFuture<>();
+        CompletableFuture<Army> running = inFlight.putIfAbsent(key, future);
+
+        Army army;
+        boolean coalesced = running != null;
+        if (coalesced) {
+            coalescedRequests.increment();
+            army = awaitCoalesced(running);
+        } else {
+            try {
+                army = admit(bytes, () -> battlefield == null
+                    ? ArmyOptimizer.buildOptimalArmyCompact(roster, maxPoints)
+                    : ArmyOptimizer.buildOptimalArmy(roster, maxPoints, battlefield));
+                future.complete(army);
+            } catch (Throwable t) {
+                // Fails the waiting requests on errors too, such as running out of memory, so none is left waiting.
+                future.completeExceptionally(t);
+                throw t;
+            } finally {
+                inFlight.remove(key, future);
+            }
+        }
+
+        Map<String, Object> response = describe(army);
+        response.put("coalesced", coalesced);
+        return response;
+    }
+
+    // Waits a bounded time for the optimize request being computed for the same key, rethrowing its error.
+    private static Army awaitCoalesced(CompletableFuture<Army> running) {
+        try {
+            return running.get(COALESCED_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ServiceException(500, "Optimization failed: " + e.getCause());
+        } catch (TimeoutException e) {
+            throw new ServiceException(503, "Timed out waiting for the same optimization to finish");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException(503, "Interrupted while waiting for the same optimization to finish");
+        }
+    }
+
+    // Simulates a single battle.
+    private Map<String, Object> battle(Map<String, Object> request) {
+        Army armyA = toArmy(getUnits(request, "armyA"));
+        Army armyB = toArmy(getUnits(request, "armyB"));
+        Battlefield battlefield = getBattlefield(request);
+        if (battlefield == null) {
+            battlefield = new Battlefield(5, 5);
+        }
+        Battlefield field = battlefield;
+
+        BattleOutcome outcome = admit(kernelBytes(armyA, armyB), () -> BattleSimulator.simulate(armyA, armyB, field,
+            request.containsKey("seed") ? new SplittableRandom(getLong(request, "seed", null))
+                                        : ThreadLocalRandom.current()));
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("outcome", outcome.name());
+        response.put("message", outcome.message);
+        return response;
+    }
+
+    // Estimates win rates over many simulated battles. If a decisive rate is given, the run stops early once
+    // some outcome is known to happen in at least that fraction of battles, as MonteCarloSimulator does.
+    private Map<String, Object> simulate(Map<String, Object> request) {
+        Army armyA = toArmy(getUnits(request, "armyA"));
+        Army armyB = toArmy(getUnits(request, "armyB"));
+        Battlefield battlefield = getBattlefield(request);
+        if (battlefield == null) {
+            battlefield = new Battlefield(5, 5);
+        }
+        Battlefield field = battlefield;
+        long trials = getLong(request, "trials", 10000L);
+        if (trials < 1 || trials > MAX_TRIALS) {
+            throw new IllegalArgumentException("trials must be between 1 and " + MAX_TRIALS);
+        }
+        long seed = request.containsKey("seed") ? getLong(request, "seed", null) : ThreadLocalRandom.current().nextLong();
+        Double decisiveRate = request.containsKey("decisiveRate") ? getDouble(request, "decisiveRate") : null;
+        if (decisiveRate != null && !(decisiveRate > 0 && decisiveRate <= 1)) {
+            throw new IllegalArgumentException("decisiveRate must be greater than 0 and at most 1");
+        }
+
+        // Reserves a kernel for every thread of the pool that fights the battles.
+        long bytes = kernelBytes(armyA, armyB) * Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+        MonteCarloResult result = admit(bytes, () -> decisiveRate == null
+            ? monteCarlo.simulate(armyA, armyB, field, trials, seed)
+            : monteCarlo.simulate(armyA, armyB, field, trials, seed, decisiveRate));
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("trials", result.getTrials());
+        response.put("armyAWins", result.armyAWins);
+        response.put("armyBWins", result.armyBWins);
+        response.put("draws", result.draws);
+        response.put("armyAWinRate", result.armyAWinRate());
+        response.put("armyAWinInterval", List.of(result.armyAWinInterval().lower, result.armyAWinInterval().upper));
+        response.put("armyBWinRate", result.armyBWinRate());
+        response.put("armyBWinInterval", List.of(result.armyBWinInterval().lower, result.armyBWinInterval().upper));
+        response.put("drawRate", result.drawRate());
+        response.put("drawInterval", List.of(result.drawInterval().lower, result.drawInterval().upper));
+        response.put("shortCircuited", result.shortCircuited);
+        return response;
+    }
+
+    // Reports the metrics snapshot along with the service's own counters.
+    private Map<String, Object> metrics() {
+        Map<String, Object> response = new LinkedHashMap<>(Metrics.snapshot().asMap());
+        response.put("service.requests", requests.sum());
+        response.put("service.coalesced", coalescedRequests.sum());
+        response.put("service.rejected", rejectedRequests.sum());
+        response.put("service.availableKib", admission.availablePermits());
+        response.put("service.admissionKib", admissionKib);
+        return response;
+    }
+
+    // Runs work once the given number of heap bytes can be reserved for it, releasing them afterwards.
+    private <T> T admit(long bytes, Supplier<T> work) {
+        long kib = Math.max(1, (bytes + 1023) / 1024);
+        if (kib > admissionKib) {
+            rejectedRequests.increment();
+            throw new ServiceException(413, "Request needs " + kib + " KiB, more than the service admits at once");
+        }
+
+        int permits = (int) kib;
+        try {
+            if (!admission.tryAcquire(permits, ADMISSION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                rejectedRequests.increment();
+                throw new ServiceException(503, "Service is busy, try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException(503, "Interrupted while waiting for admission");
+        }
+
+        try {
+            return work.get();
+        } finally {
+            admission.release(permits);
+        }
+    }
+
+    // Estimates the heap bytes of a kernel loaded with the two armies.
+    private static long kernelBytes(Army armyA, Army armyB) {
+        return 1024L + 64L * (armyA.getSelectedUnits().size() + armyB.getSelectedUnits().size());
+    }
+
+    // Reads the request, runs the handler and writes its response, turning errors into JSON error responses.
+    private void respond(HttpExchange exchange, String method, Function<Map<String, Object>, Map<String, Object>> handler) {
+        requests.increment();
+        try {
+            int status = 200;
+            Object body;
+            try {
+                if (!method.equals(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    throw new ServiceException(405, "Use " + method);
+                }
+                body = handler.apply("POST".equals(method) ? readBody(exchange) : Map.of());
+            } catch (ServiceException e) {
+                status = e.status;
+                body = Map.of("error", e.getMessage());
+            } catch (IllegalArgumentException e) {
+                status = 400;
+                body = Map.of("error", String.valueOf(e.getMessage()));
+            } catch (RuntimeException e) {
+                status = 500;
+                body = Map.of("error", e.toString());
+            }
+
+            byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            // The client went away before the response could be written.
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Reads the request body as a JSON object.
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        byte[] bytes;
+        try (InputStream in = exchange.getRequestBody()) {
+            bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+        }
+        if (bytes.length > MAX_BODY_BYTES) {
+            throw new ServiceException(413, "Request body is larger than " + MAX_BODY_BYTES + " bytes");
+        }
+        Object body = Json.parse(new String(bytes, StandardCharsets.UTF_8));
+        if (!(body instanceof Map)) {
+            throw new IllegalArgumentException("Request body must be a JSON object");
+        }
+        return (Map<String, Object>) body;
+    }
+
+    // Looks up the codex units named by a request field.
+    private List<Unit> getUnits(Map<String, Object> request, String field) {
+        Object value = request.get(field);
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException(field + " must be a list of unit names");
+        }
+        List<Unit> units = new ArrayList<>();
+        for (Object name : (List<?>) value) {
+            Unit unit = unitsByName.get(name);
+            if (unit == null) {
+                throw new IllegalArgumentException("Unknown unit " + Json.write(name));
+            }
+            units.add(unit);
+        }
+        return units;
+    }
+
+    private static Army toArmy(List<Unit> units) {
+        Army army = new Army();
+        for (Unit unit : units) {
+            army.addUnit(unit);
+        }
+        return army;
+    }
+
+    // Reads the optional battlefield of a request.
+    private static Battlefield getBattlefield(Map<String, Object> request) {
+        Object value = request.get("battlefield");
+        if (value == null) {
+            return null;
+        }
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("battlefield must be an object with size and objectives");
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> battlefield = (Map<String, Object>) value;
+        return new Battlefield(getInt(battlefield, "size", 5), getInt(battlefield, "objectives", 5));
+    }
+
+    private static int getInt(Map<String, Object> request, String field, Integer defaultValue) {
+        long value = getLong(request, field, defaultValue == null ? null : (long) defaultValue);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE - 1) {
+            throw new IllegalArgumentException(field + " is out of range");
+        }
+        return (int) value;
+    }
+
+    private static long getLong(Map<String, Object> request, String field, Long defaultValue) {
+        Object value = request.get(field);
+        if (value == null && defaultValue != null) {
+            return defaultValue;
+        }
+        if (!(value instanceof Double) || (Double) value != Math.rint((Double) value)
+            || Math.abs((Double) value) > 0x1p63) {
+            throw new IllegalArgumentException(field + " must be an integer");
+        }
+        return ((Double) value).longValue();
+    }
+
+    private static double getDouble(Map<String, Object> request, String field) {
+        Object value = request.get(field);
+        if (!(value instanceof Double)) {
+            throw new IllegalArgumentException(field + " must be a number");
+        }
+        return (Double) value;
+    }
+
+    // Describes an army's units and totals.
+    private static Map<String, Object> describe(Army army) {
+        List<Object> units = new ArrayList<>();
+        for (Unit unit : army.getSelectedUnits()) {
+            units.add(unit.name);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("units", units);
+        response.put("totalPoints", army.calculateTotalPoints());
+        response.put("totalEffectiveness", army.calculateTotalEffectiveness());
+        return response;
+    }
+
+
+    /**
+     *  Exception that ends a request with the given HTTP status.
+     */
+    private static final class ServiceException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        ServiceException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
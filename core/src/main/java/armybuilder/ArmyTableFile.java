@@ -0,0 +1,226 @@
+package armybuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Class that precomputes the optimal army of a codex for every budget up to a maximum and stores the
+ * armies in a binary table file, so that workers can map the file at startup instead of running the
+ * optimizer. Each budget's army is the one ArmyOptimizer.buildOptimalArmy builds from the codex units.
+ *
+ * The file starts with a header holding the magic number, the format version, the number of units, the
+ * number of longs in each selection, the maximum budget, a reserved int and the hash of the codex the
+ * table was built from. It is followed by the selection of each budget, one bit per codex unit, and then
+ * by the total effectiveness of each budget's army. A table is only opened for a codex with the same hash,
+ * so a table built from an older codex is never used by mistake.
+ */
+class ArmyTableFile {
+
+    // Identifies an army table file ("ARMT").
+    static final int MAGIC = 0x41524D54;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+
+    // Precomputes the table for the built-in codex, or for a text codex file, up to the given budget:
+    // ArmyTableFile <maxPoints> <table file> [codex file]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ArmyTableFile <maxPoints> <table file> [codex file]");
+            System.exit(2);
+        }
+        int maxPoints = Integer.parseInt(args[0]);
+        Codex codex = args.length > 2 ? CodexLoader.readCsv(Paths.get(args[2])) : new Codex();
+        write(codex.getUnits(), maxPoints, Paths.get(args[1]));
+    }
+
+    // Solves the knapsack for the codex once and writes the optimal army of every budget up to maxPoints.
+    public static void write(List<Unit> units, int maxPoints, Path path) throws IOException {
+
+        if (maxPoints < 0) {
+            throw new IllegalArgumentException("Budget must not be negative");
+        }
+        int n = units.size();
+        int[] costs = new int[n];
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            costs[i] = units.get(i).pointCost;
+            values[i] = units.get(i).profile().effectiveness;
+        }
+        KnapsackSolution solution = KnapsackSolution.solve(costs, values, maxPoints);
+
+        int words = (n + 63) >>> 6;
+        long budgets = maxPoints + 1L;
+        long size = HEADER_BYTES + budgets * words * Long.BYTES + budgets * Integer.BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Table of " + budgets + " budgets is too large for a single army table file");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(words).putInt(maxPoints).putInt(0)
+              .putLong(codexHash(units));
+
+        long[] selection = new long[words];
+        for (int points = 0; points <= maxPoints; points++) {
+            boolean[] selected = solution.select(points);
+            Arrays.fill(selection, 0L);
+            for (int i = 0; i < n; i++) {
+                if (selected[i]) {
+                    selection[i >>> 6] |= 1L << i;
+                }
+            }
+            for (long word : selection) {
+                buffer.putLong(word);
+            }
+        }
+        for (int points = 0; points <= maxPoints; points++) {
+            buffer.putInt(solution.bestValue(points));
+        }
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    // Memory-maps an army table file built from the given codex units.
+    public static MappedArmyTable open(Path path, List<Unit> units) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + ": file is too large to be an army table file");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException(path + ": not an army table file");
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException(path + ": unsupported army table version " + buffer.getInt(4));
+            }
+            if (buffer.getInt(8) != units.size() || buffer.getLong(24) != codexHash(units)) {
+                throw new IOException(path + ": army table was built from a different codex");
+            }
+            return new MappedArmyTable(buffer, path, units);
+        }
+    }
+
+    // Returns a hash of the contents of every unit in the codex, in order, which changes whenever a unit is
+    // added, removed, reordered or has any of its stats or roles changed.
+    public static long codexHash(List<Unit> units) {
+        long hash = 0xCBF29CE484222325L;
+        for (Unit unit : units) {
+            for (byte b : unit.name.getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ b) * 0x100000001B3L;
+            }
+            long[] stats = {unit.name.length(), unit.speed, unit.wounds, Double.doubleToLongBits(unit.armor),
+                            Double.doubleToLongBits(unit.shootingAccuracy), unit.shootingDamage,
+                            Double.doubleToLongBits(unit.closeCombatAccuracy), unit.closeCombatDamage, unit.pointCost};
+            for (long stat : stats) {
+                hash = (hash ^ stat) * 0x100000001B3L;
+                hash ^= hash >>> 29;
+            }
+            for (byte b : unit.joinRoles().getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ b) * 0x100000001B3L;
+            }
+            hash = (hash ^ 0xFF) * 0x100000001B3L;
+        }
+        return hash;
+    }
+}
+
+
+/**
+ * Class to represent an army table file mapped into memory. Looking up the army or effectiveness of a
+ * budget reads a fixed position of the mapping, so it costs the same for every budget.
+ */
+class MappedArmyTable {
+
+    private final ByteBuffer buffer;
+    private final List<Unit> units;
+    private final int words;
+    private final int maxPoints;
+    private final int effectivenessOffset;
+
+    MappedArmyTable(ByteBuffer buffer, Path path, List<Unit> units) throws IOException {
+        this.buffer = buffer;
+        this.units = units;
+        this.words = buffer.getInt(12);
+        this.maxPoints = buffer.getInt(16);
+
+        long budgets = maxPoints + 1L;
+        long selections = ArmyTableFile.HEADER_BYTES + budgets * words * Long.BYTES;
+        if (maxPoints < 0 || words != (units.size() + 63) >>> 6
+                || selections + budgets * Integer.BYTES > buffer.limit()) {
+            throw new IOException(path + ": truncated army table file");
+        }
+        this.effectivenessOffset = (int) selections;
+    }
+
+    // Retrieves and returns the codex units the table was built from.
+    public List<Unit> getUnits() {
+        return units;
+    }
+
+    // Retrieves and returns the largest budget in the table.
+    public int getMaxPoints() {
+        return maxPoints;
+    }
+
+    // Checks if the table holds the army for the given budget.
+    public boolean contains(int points) {
+        return points <= maxPoints;
+    }
+
+    // Retrieves and returns the summed unit effectiveness of the optimal army within the budget.
+    public int getEffectiveness(int points) {
+        checkBudget(points);
+        return points < 0 ? 0 : buffer.getInt(effectivenessOffset + points * Integer.BYTES);
+    }
+
+    // Checks if the optimal army within the budget holds the codex unit at the given index.
+    public boolean isSelected(int points, int unit) {
+        checkBudget(points);
+        if (points < 0) {
+            return false;
+        }
+        long word = buffer.getLong(ArmyTableFile.HEADER_BYTES + (points * words + (unit >>> 6)) * Long.BYTES);
+        return (word & (1L << unit)) != 0;
+    }
+
+    // Builds the optimal army within the budget, adding its units in the same order as buildOptimalArmy.
+    public Army getArmy(int points) {
+        checkBudget(points);
+        Army optimalArmy = new Army();
+        if (points < 0) {
+            return optimalArmy;
+        }
+        int base = ArmyTableFile.HEADER_BYTES + points * words * Long.BYTES;
+        for (int w = words - 1; w >= 0; w--) {
+            long word = buffer.getLong(base + w * Long.BYTES);
+            while (word != 0) {
+                int bit = 63 - Long.numberOfLeadingZeros(word);
+                optimalArmy.addUnit(units.get(w * 64 + bit));
+                word &= ~(1L << bit);
+            }
+        }
+        return optimalArmy;
+    }
+
+    // Ensures a budget is within the table.
+    private void checkBudget(int points) {
+        if (points > maxPoints) {
+            throw new IllegalArgumentException("Budget " + points + " exceeds the table's budget " + maxPoints);
+        }
+    }
+}
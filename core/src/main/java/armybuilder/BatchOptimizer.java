@@ -0,0 +1,191 @@
+package armybuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ *  Class to represent a single request to build the optimal army from a roster of units within a budget.
+ */
+final class OptimizationRequest {
+
+    final List<Unit> roster;
+    final int maxPoints;
+
+    public OptimizationRequest(List<Unit> roster, int maxPoints) {
+        this.roster = roster;
+        this.maxPoints = maxPoints;
+    }
+
+    public List<Unit> getRoster() {
+        return roster;
+    }
+
+    public int getMaxPoints() {
+        return maxPoints;
+    }
+}
+
+
+/**
+ *  Class that answers many optimization requests at once. Requests with the same roster, holding the same
+ *  units in the same order, are grouped and their knapsack is solved once at the group's largest budget.
+ *  The solution keeps the decisions for every smaller budget, so each request in the group is answered by
+ *  backtracking from its own budget, and gets exactly the army ArmyOptimizer.buildOptimalArmy would build
+ *  for it alone. Groups are independent and solved in parallel on a fork-join pool.
+ */
+class BatchOptimizer {
+
+    // Pool that solves the groups.
+    private final ForkJoinPool pool;
+
+    // Initializes the optimizer on the common fork-join pool.
+    public BatchOptimizer() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    // Initializes the optimizer on the given fork-join pool.
+    public BatchOptimizer(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // Builds the optimal army for every request, returning the armies in the order of the requests.
+    public List<Army> optimize(List<OptimizationRequest> requests) {
+
+        // Groups the requests by roster, keeping the index of each request within the batch.
+        Map<RosterKey, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            RosterKey key = new RosterKey(requests.get(i).roster);
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+
+        Army[] armies = new Army[requests.size()];
+        List<GroupTask> tasks = new ArrayList<>();
+        for (Map.Entry<RosterKey, List<Integer>> group : groups.entrySet()) {
+            tasks.add(new GroupTask(group.getKey().units, group.getValue(), requests, armies));
+        }
+        pool.invoke(new BatchTask(tasks));
+        return Arrays.asList(armies);
+    }
+
+    // Solves a group's knapsack at its largest budget and builds the army for each of its requests.
+    private static void solveGroup(Unit[] units, List<Integer> group, List<OptimizationRequest> requests,
+                                   Army[] armies) {
+
+        int n = units.length;
+        int[] costs = new int[n];
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            costs[i] = units[i].pointCost;
+            values[i] = units[i].profile().effectiveness;
+        }
+
+        int maxPoints = Integer.MIN_VALUE;
+        for (int request : group) {
+            maxPoints = Math.max(maxPoints, requests.get(request).maxPoints);
+        }
+        KnapsackSolution solution = KnapsackSolution.solve(costs, values, maxPoints);
+
+        // Adds the selected units in the same order that backtracking the full table would.
+        for (int request : group) {
+            boolean[] selected = solution.select(requests.get(request).maxPoints);
+            Army optimalArmy = new Army();
+            for (int i = n - 1; i >= 0; i--) {
+                if (selected[i]) {
+                    optimalArmy.addUnit(units[i]);
+                }
+            }
+            armies[request] = optimalArmy;
+        }
+    }
+
+
+    /**
+     *  Class to represent the roster shared by a group of requests. Units are compared by identity, as
+     *  two units with the same name may have different stats.
+     */
+    private static final class RosterKey {
+        private final Unit[] units;
+        private final int hash;
+
+        RosterKey(List<Unit> roster) {
+            this.units = roster.toArray(new Unit[0]);
+            int hash = 1;
+            for (Unit unit : units) {
+                hash = 31 * hash + System.identityHashCode(unit);
+            }
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof RosterKey)) {
+                return false;
+            }
+            RosterKey key = (RosterKey) other;
+            if (hash != key.hash || units.length != key.units.length) {
+                return false;
+            }
+            for (int i = 0; i < units.length; i++) {
+                if (units[i] != key.units[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+
+    /**
+     *  Task that solves every group of a batch, one GroupTask per group.
+     */
+    private static final class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<GroupTask> tasks;
+
+        BatchTask(List<GroupTask> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(tasks);
+        }
+    }
+
+
+    /**
+     *  Task that solves one group of requests.
+     */
+    private static final class GroupTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Unit[] units;
+        private final List<Integer> group;
+        private final List<OptimizationRequest> requests;
+        private final Army[] armies;
+
+        GroupTask(Unit[] units, List<Integer> group, List<OptimizationRequest> requests, Army[] armies) {
+            this.units = units;
+            this.group = group;
+            this.requests = requests;
+            this.armies = armies;
+        }
+
+        @Override
+        protected void compute() {
+            solveGroup(units, group, requests, armies);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package armybuilder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+
+/**
+ * Class that fights a very large number of battles between two armies and aggregates them into
+ * BattleStatistics as they are fought, so memory stays the same however many battles run. Battles are
+ * fought in chunks on a fork-join pool, each chunk filling its own statistics with the worker thread's
+ * BattleKernel, and the chunks of a segment are merged into the running totals once the segment is done.
+ *
+ * If a snapshot file is given, the totals are written to it after every segment, and a new aggregator for
+ * the same armies, battlefields and seed resumes from the last snapshot instead of starting over. Battle n
+ * is fought on battlefield n modulo the number of battlefields, with a generator seeded from its chunk, so
+ * the statistics for a number of battles are the same whatever the pool and however often the run resumed.
+ */
+class BattleAggregator {
+
+    // Number of battles fought with a single generator by a single task.
+    static final int BATTLES_PER_CHUNK = 1 << 16;
+
+    // Default number of chunks merged into the totals between snapshots.
+    static final int CHUNKS_PER_SEGMENT = 64;
+
+    // Identifies a battle statistics snapshot file ("ARMS").
+    static final int MAGIC = 0x41524D53;
+    static final int VERSION = 1;
+
+    // Kernel reused by each worker thread across chunks.
+    private static final ThreadLocal<BattleKernel> kernels = ThreadLocal.withInitial(BattleKernel::new);
+
+    private final Army armyA;
+    private final Army armyB;
+    private final List<Battlefield> battlefields;
+    private final long seed;
+    private final Path snapshot;
+    private int chunksPerSegment = CHUNKS_PER_SEGMENT;
+
+    private BattleStatistics statistics;
+    private long completedBattles;
+    private volatile boolean cancelled;
+
+    // Initializes an aggregator for battles between the given armies on the given battlefields. If the
+    // snapshot file exists, the aggregator resumes from it; if the snapshot is null, nothing is written.
+    public BattleAggregator(Army armyA, Army armyB, List<Battlefield> battlefields, long seed, Path snapshot)
+            throws IOException {
+        if (battlefields.isEmpty()) {
+            throw new IllegalArgumentException("At least one battlefield is required");
+        }
+        this.armyA = armyA;
+        this.armyB = armyB;
+        this.battlefields = new ArrayList<>(battlefields);
+        this.seed = seed;
+        this.snapshot = snapshot;
+        this.statistics = new BattleStatistics(armyA.getSelectedUnits().size(), armyB.getSelectedUnits().size());
+
+        if (snapshot != null && Files.exists(snapshot)) {
+            readSnapshot();
+        }
+    }
+
+    // Sets the number of chunks fought between snapshots.
+    public void setChunksPerSegment(int chunksPerSegment) {
+        if (chunksPerSegment < 1) {
+            throw new IllegalArgumentException("A segment must hold at least one chunk");
+        }
+        this.chunksPerSegment = chunksPerSegment;
+    }
+
+    // Fights battles on the common fork-join pool until totalBattles have been counted, and returns the
+    // statistics of every battle.
+    public BattleStatistics run(long totalBattles) throws IOException {
+        return run(totalBattles, ForkJoinPool.commonPool(), null);
+    }
+
+    // Fights battles on the given pool until totalBattles have been counted, and returns the statistics of
+    // every battle. If a listener is given, it receives the statistics so far after every segment.
+    public BattleStatistics run(long totalBattles, ForkJoinPool pool, Consumer<BattleStatistics> listener)
+            throws IOException {
+        if (completedBattles < totalBattles && completedBattles % BATTLES_PER_CHUNK != 0) {
+            throw new IllegalStateException("Cannot continue past " + completedBattles
+                                            + " battles, which ends part way through a chunk");
+        }
+
+        while (completedBattles < totalBattles && !cancelled) {
+            long end = Math.min(totalBattles, completedBattles + (long) chunksPerSegment * BATTLES_PER_CHUNK);
+            BattleStatistics segment = pool.invoke(new ChunkTask(completedBattles, end));
+
+            // Drops a segment that was cancelled part way, so the totals only ever cover whole chunks.
+            if (cancelled) {
+                break;
+            }
+            statistics.merge(segment);
+            completedBattles = end;
+            if (snapshot != null) {
+                writeSnapshot();
+            }
+            if (listener != null) {
+                listener.accept(getStatistics());
+            }
+        }
+        return getStatistics();
+    }
+
+    // Stops the run after the chunks currently being fought, keeping the statistics of the last segment.
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Retrieves and returns the number of battles counted so far, including those of a resumed snapshot.
+    public long getCompletedBattles() {
+        return completedBattles;
+    }
+
+    // Returns a copy of the statistics counted so far.
+    public BattleStatistics getStatistics() {
+        return statistics.copy();
+    }
+
+    // Fights the battles with numbers from first up to last, which all belong to the same chunk.
+    private BattleStatistics fightChunk(long first, long last) {
+        BattleKernel kernel = kernels.get();
+        kernel.load(armyA, armyB);
+
+        // Seeds each chunk from its index, so results don't depend on which thread fights it.
+        long chunk = first / BATTLES_PER_CHUNK;
+        SplittableRandom random = new SplittableRandom(Seeds.forIndex(seed, chunk));
+        BattleStatistics chunkStatistics = new BattleStatistics(statistics.getUnitCountA(),
+                                                                statistics.getUnitCountB());
+        int size = battlefields.size();
+        int battlefield = (int) (first % size);
+        for (long battle = first; battle < last && !cancelled; battle++) {
+            BattleOutcome outcome = kernel.run(random, chunkStatistics);
+            chunkStatistics.recordBattle(battlefields.get(battlefield).index(), outcome, kernel.getRounds());
+            if (++battlefield == size) {
+                battlefield = 0;
+            }
+        }
+        return chunkStatistics;
+    }
+
+    // Writes the totals to a temporary file next to the snapshot and moves it over the snapshot, so a
+    // crash while writing leaves the previous snapshot intact.
+    private void writeSnapshot() throws IOException {
+        Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeHeader(out);
+            out.writeLong(completedBattles);
+            statistics.write(out);
+        }
+        try {
+            Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Writes what identifies the battles being aggregated: the seed, both armies and the battlefields.
+    private void writeHeader(DataOutputStream out) throws IOException {
+        out.writeLong(seed);
+        out.writeLong(ArmyTableFile.codexHash(armyA.getSelectedUnits()));
+        out.writeLong(ArmyTableFile.codexHash(armyB.getSelectedUnits()));
+        out.writeInt(battlefields.size());
+        for (Battlefield battlefield : battlefields) {
+            out.writeInt(battlefield.index());
+        }
+    }
+
+    // Restores the totals from the snapshot, which must have been taken for the same battles.
+    private void readSnapshot() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(snapshot + ": not a battle statistics snapshot");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(snapshot + ": unsupported snapshot version " + version);
+            }
+
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            writeHeader(new DataOutputStream(expected));
+            byte[] header = new byte[expected.size()];
+            in.readFully(header);
+            if (!Arrays.equals(header, expected.toByteArray())) {
+                throw new IOException(snapshot + ": snapshot was taken for different armies, battlefields or seed");
+            }
+
+            long battles = in.readLong();
+            BattleStatistics restored = BattleStatistics.read(in);
+            if (battles < 0 || restored.getBattles() != battles
+                    || restored.getUnitCountA() != statistics.getUnitCountA()
+                    || restored.getUnitCountB() != statistics.getUnitCountB()) {
+                throw new IOException(snapshot + ": inconsistent battle statistics snapshot");
+            }
+            statistics = restored;
+            completedBattles = battles;
+        } catch (EOFException e) {
+            throw new IOException(snapshot + ": truncated battle statistics snapshot", e);
+        }
+    }
+
+
+    /**
+     *  Task that fights a range of battles, splitting it on chunk boundaries until it holds a single chunk,
+     *  and merges the statistics of its halves.
+     */
+    private final class ChunkTask extends RecursiveTask<BattleStatistics> {
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+
+        ChunkTask(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BattleStatistics compute() {
+            long chunks = (to - from + BATTLES_PER_CHUNK - 1) / BATTLES_PER_CHUNK;
+            if (chunks <= 1) {
+                return fightChunk(from, to);
+            }
+            long middle = from + chunks / 2 * BATTLES_PER_CHUNK;
+            ChunkTask right = new ChunkTask(middle, to);
+            right.fork();
+            BattleStatistics left = new ChunkTask(from, middle).compute();
+            return left.merge(right.join());
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package armybuilder;
+
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+
+/**
+ *  Class that simulates battles between two armies using primitive arrays instead of BattleUnit
+ *  objects. The armies are loaded once and can then be fought any number of times without any
+ *  heap allocation, which makes it suited to running many battles between the same armies. The only
+ *  exception is the JFR BattleEvent, which is built only while a running recording has it enabled.
+ *  Each battle follows the same rules as BattleSimulator, so the outcomes have the same distribution.
+ *
+ *  The kernel takes no battlefield. BattleSimulator only compares the armies' battlefield effectiveness
+ *  once both armies are depleted, and as neither has a unit left that comparison is always a draw, so no
+ *  outcome ever depends on the battlefield.
+ */
+class BattleKernel {
+
+    // Stats of each loaded unit, indexed by its position in its army.
+    private int[] effectivenessA = new int[0];
+    private int[] shootingA = new int[0];
+    private int[] meleeA = new int[0];
+    private int[] effectivenessB = new int[0];
+    private int[] shootingB = new int[0];
+    private int[] meleeB = new int[0];
+    private int unitCountA;
+    private int unitCountB;
+
+    // Working state of the battle being fought. Units that are still alive occupy the first
+    // aliveA/aliveB slots, and a dead unit is swapped with the last alive unit.
+    private double[] healthA = new double[0];
+    private double[] healthB = new double[0];
+    private int[] slotUnitA = new int[0];
+    private int[] slotUnitB = new int[0];
+    private int[] slotEffectivenessA = new int[0];
+    private int[] slotShootingA = new int[0];
+    private int[] slotMeleeA = new int[0];
+    private int[] slotEffectivenessB = new int[0];
+    private int[] slotShootingB = new int[0];
+    private int[] slotMeleeB = new int[0];
+    private int aliveA;
+    private int aliveB;
+
+    // Outcome every battle between the loaded armies is certain to have, or null if it isn't decided.
+    private BattleOutcome decidedOutcome;
+
+    // Whether battles with a decided outcome return it without being fought, and whether the last one did.
+    private boolean shortCircuit;
+    private boolean shortCircuited;
+
+    // Number of rounds fought in the last battle.
+    private int rounds;
+
+    // Loads the units of both armies, reusing the existing arrays if they are large enough.
+    public void load(Army armyA, Army armyB) {
+        List<Unit> unitsA = armyA.getSelectedUnits();
+        List<Unit> unitsB = armyB.getSelectedUnits();
+
+        unitCountA = unitsA.size();
+        unitCountB = unitsB.size();
+        if (effectivenessA.length < unitCountA) {
+            effectivenessA = new int[unitCountA];
+            shootingA = new int[unitCountA];
+            meleeA = new int[unitCountA];
+            healthA = new double[unitCountA];
+            slotEffectivenessA = new int[unitCountA];
+            slotShootingA = new int[unitCountA];
+            slotMeleeA = new int[unitCountA];
+            slotUnitA = new int[unitCountA];
+        }
+        if (effectivenessB.length < unitCountB) {
+            effectivenessB = new int[unitCountB];
+            shootingB = new int[unitCountB];
+            meleeB = new int[unitCountB];
+            healthB = new double[unitCountB];
+            slotEffectivenessB = new int[unitCountB];
+            slotShootingB = new int[unitCountB];
+            slotMeleeB = new int[unitCountB];
+            slotUnitB = new int[unitCountB];
+        }
+
+        // Copies the effectiveness of each unit and its effectiveness in shooting and close combat.
+        for (int i = 0; i < unitCountA; i++) {
+            UnitProfile profile = unitsA.get(i).profile();
+            effectivenessA[i] = profile.effectiveness;
+            shootingA[i] = profile.shootingEffectiveness;
+            meleeA[i] = profile.closeCombatEffectiveness;
+        }
+        for (int i = 0; i < unitCountB; i++) {
+            UnitProfile profile = unitsB.get(i).profile();
+            effectivenessB[i] = profile.effectiveness;
+            shootingB[i] = profile.shootingEffectiveness;
+            meleeB[i] = profile.closeCombatEffectiveness;
+        }
+
+        decidedOutcome = findDecidedOutcome();
+    }
+
+    // Retrieves and returns the outcome every battle between the loaded armies is certain to have, or
+    // null if the outcome depends on the dice.
+    public BattleOutcome getDecidedOutcome() {
+        return decidedOutcome;
+    }
+
+    // Sets whether battles with a decided outcome return it straight away instead of being fought.
+    // Battles that are being logged or counted in statistics are always fought.
+    public void setShortCircuit(boolean shortCircuit) {
+        this.shortCircuit = shortCircuit;
+    }
+
+    // Checks if the last battle returned its decided outcome without being fought.
+    public boolean wasShortCircuited() {
+        return shortCircuited;
+    }
+
+    // Finds whether one army is certain to win before any dice are rolled. That is the case when every
+    // unit of the army has higher effectiveness, shooting effectiveness and close combat effectiveness
+    // than every enemy unit, so it wins every combat and deals damage every round, and it can't lose a
+    // single unit. The winner of a combat takes 0.2 of the difference in damage while the loser takes 0.5,
+    // so the damage the army takes is 0.4 of the damage it deals. The damage it deals is at most the
+    // health of every enemy unit plus, for each enemy unit, the overkill of its final blow, so if 0.4 of
+    // that is below the health of its weakest unit, no unit of the army can die.
+    private BattleOutcome findDecidedOutcome() {
+        if (unitCountA == 0 || unitCountB == 0) {
+            return null;
+        }
+        if (dominates(effectivenessA, shootingA, meleeA, unitCountA, effectivenessB, shootingB, meleeB, unitCountB)) {
+            return BattleOutcome.ARMY_A_WINS;
+        }
+        if (dominates(effectivenessB, shootingB, meleeB, unitCountB, effectivenessA, shootingA, meleeA, unitCountA)) {
+            return BattleOutcome.ARMY_B_WINS;
+        }
+        return null;
+    }
+
+    // Checks if the first army is certain to beat the second, as described in findDecidedOutcome().
+    private static boolean dominates(int[] effectiveness, int[] shooting, int[] melee, int count,
+                                     int[] enemyEffectiveness, int[] enemyShooting, int[] enemyMelee, int enemyCount) {
+        int minEffectiveness = Integer.MAX_VALUE;
+        int maxEffectiveness = Integer.MIN_VALUE;
+        int minShooting = Integer.MAX_VALUE;
+        int minMelee = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            minEffectiveness = Math.min(minEffectiveness, effectiveness[i]);
+            maxEffectiveness = Math.max(maxEffectiveness, effectiveness[i]);
+            minShooting = Math.min(minShooting, shooting[i]);
+            minMelee = Math.min(minMelee, melee[i]);
+        }
+
+        int enemyMinEffectiveness = Integer.MAX_VALUE;
+        int enemyMaxEffectiveness = Integer.MIN_VALUE;
+        int enemyMaxShooting = Integer.MIN_VALUE;
+        int enemyMaxMelee = Integer.MIN_VALUE;
+        double enemyHealth = 0.0;
+        for (int i = 0; i < enemyCount; i++) {
+            enemyMinEffectiveness = Math.min(enemyMinEffectiveness, enemyEffectiveness[i]);
+            enemyMaxEffectiveness = Math.max(enemyMaxEffectiveness, enemyEffectiveness[i]);
+            enemyMaxShooting = Math.max(enemyMaxShooting, enemyShooting[i]);
+            enemyMaxMelee = Math.max(enemyMaxMelee, enemyMelee[i]);
+            enemyHealth += enemyEffectiveness[i];
+        }
+
+        if (minEffectiveness <= enemyMaxEffectiveness || minShooting <= enemyMaxShooting || minMelee <= enemyMaxMelee) {
+            return false;
+        }
+
+        // Leaves a margin for the rounding of the health arithmetic.
+        double maxDifference = (double) maxEffectiveness - enemyMinEffectiveness;
+        double maxDamageDealt = enemyHealth + enemyCount * 0.5 * maxDifference;
+        return 0.4 * maxDamageDealt < minEffectiveness * (1.0 - 1e-9);
+    }
+
+    // Simulates a battle between the loaded armies, drawing unit picks and distances from the given generator.
+    public BattleOutcome run(RandomGenerator random) {
+        return run(random, null, null);
+    }
+
+    // Simulates a battle between the loaded armies, recording every round in the log if one is given so
+    // that the battle can be replayed with BattleReplay.
+    public BattleOutcome run(RandomGenerator random, BattleLog log) {
+        return run(random, log, null);
+    }
+
+    // Simulates a battle between the loaded armies, counting every unit killed in the statistics if they
+    // are given. The battle itself isn't recorded, as the statistics don't know its battlefield.
+    public BattleOutcome run(RandomGenerator random, BattleStatistics statistics) {
+        return run(random, null, statistics);
+    }
+
+    private BattleOutcome run(RandomGenerator random, BattleLog log, BattleStatistics statistics) {
+        if (log != null && (unitCountA > BattleLog.MAX_UNITS || unitCountB > BattleLog.MAX_UNITS)) {
+            throw new IllegalArgumentException("Armies larger than " + BattleLog.MAX_UNITS + " units cannot be logged");
+        }
+
+        shortCircuited = shortCircuit && log == null && statistics == null && decidedOutcome != null;
+        if (shortCircuited) {
+            rounds = 0;
+            Metrics.recordShortCircuitedBattle();
+            return decidedOutcome;
+        }
+
+        BattleEvent event = Metrics.beginBattle();
+        reset();
+
+        // Simulates combat between random units from each army until one or both armies are depleted.
+        rounds = 0;
+        while (aliveA > 0 && aliveB > 0) {
+            rounds++;
+            int a = random.nextInt(aliveA);
+            int b = random.nextInt(aliveB);
+
+            // Calculates the difference in effectiveness between units.
+            int effectivenessDifference = Math.abs(slotEffectivenessA[a] - slotEffectivenessB[b]);
+            double difference = effectivenessDifference;
+
+            // Generates a random distance between units in combat, which decides between shooting and close combat.
+            int distance = random.nextInt(11);
+            int combatA = distance > 5 ? slotShootingA[a] : slotMeleeA[a];
+            int combatB = distance > 5 ? slotShootingB[b] : slotMeleeB[b];
+
+            CombatResult result = CombatResult.compare(combatA, combatB);
+            if (result == CombatResult.A_WINS) {
+                healthB[b] -= 0.5 * difference;
+                healthA[a] -= 0.2 * difference;
+            } else if (result == CombatResult.B_WINS) {
+                healthA[a] -= 0.5 * difference;
+                healthB[b] -= 0.2 * difference;
+            } else {
+                healthA[a] -= 0.1 * difference;
+                healthB[b] -= 0.1 * difference;
+            }
+
+            if (log != null) {
+                log.recordRound(slotUnitA[a], slotUnitB[b], distance, result, effectivenessDifference);
+            }
+
+            if (statistics != null && (healthA[a] <= 0 || healthB[b] <= 0)) {
+                statistics.recordDeaths(slotUnitA[a], healthA[a] <= 0, slotUnitB[b], healthB[b] <= 0);
+            }
+
+            // Removes a unit from the battle once its health reaches zero.
+            if (healthA[a] <= 0) {
+                removeA(a);
+            }
+            if (healthB[b] <= 0) {
+                removeB(b);
+            }
+
+            // Ends the battle once no pairing can deal damage, which would otherwise loop forever.
+            if (difference == 0 && isStalemate()) {
+                break;
+            }
+        }
+
+        BattleOutcome outcome = getOutcome();
+        if (log != null) {
+            log.recordEnd(outcome);
+        }
+        Metrics.recordCombats(rounds);
+        Metrics.recordBattle(event, rounds, unitCountA - aliveA, unitCountB - aliveB, outcome);
+        return outcome;
+    }
+
+    // Retrieves and returns the number of rounds fought in the last battle, which is zero if it was
+    // short-circuited.
+    public int getRounds() {
+        return rounds;
+    }
+
+    // Determines the winner, which is the army with remaining units. When both armies are depleted,
+    // BattleSimulator compares the battlefield effectiveness of the remaining units, and as there
+    // are none the result is a draw.
+    private BattleOutcome getOutcome() {
+        if (aliveA > 0 && aliveB == 0) {
+            return BattleOutcome.ARMY_A_WINS;
+        } else if (aliveB > 0 && aliveA == 0) {
+            return BattleOutcome.ARMY_B_WINS;
+        } else {
+            return BattleOutcome.DRAW;
+        }
+    }
+
+    // Restores every loaded unit to full health.
+    private void reset() {
+        for (int i = 0; i < unitCountA; i++) {
+            healthA[i] = effectivenessA[i];
+            slotUnitA[i] = i;
+        }
+        for (int i = 0; i < unitCountB; i++) {
+            healthB[i] = effectivenessB[i];
+            slotUnitB[i] = i;
+        }
+        System.arraycopy(effectivenessA, 0, slotEffectivenessA, 0, unitCountA);
+        System.arraycopy(shootingA, 0, slotShootingA, 0, unitCountA);
+        System.arraycopy(meleeA, 0, slotMeleeA, 0, unitCountA);
+        System.arraycopy(effectivenessB, 0, slotEffectivenessB, 0, unitCountB);
+        System.arraycopy(shootingB, 0, slotShootingB, 0, unitCountB);
+        System.arraycopy(meleeB, 0, slotMeleeB, 0, unitCountB);
+        aliveA = unitCountA;
+        aliveB = unitCountB;
+    }
+
+    // Removes a unit from Army A by moving the last alive unit into its slot.
+    private void removeA(int slot) {
+        int last = --aliveA;
+        healthA[slot] = healthA[last];
+        slotEffectivenessA[slot] = slotEffectivenessA[last];
+        slotShootingA[slot] = slotShootingA[last];
+        slotMeleeA[slot] = slotMeleeA[last];
+        slotUnitA[slot] = slotUnitA[last];
+    }
+
+    // Removes a unit from Army B by moving the last alive unit into its slot.
+    private void removeB(int slot) {
+        int last = --aliveB;
+        healthB[slot] = healthB[last];
+        slotEffectivenessB[slot] = slotEffectivenessB[last];
+        slotShootingB[slot] = slotShootingB[last];
+        slotMeleeB[slot] = slotMeleeB[last];
+        slotUnitB[slot] = slotUnitB[last];
+    }
+
+    // Checks if every remaining unit on both sides has the same effectiveness, in which case no
+    // combat can deal damage.
+    private boolean isStalemate() {
+        if (aliveA == 0 || aliveB == 0) {
+            return false;
+        }
+        int effectiveness = slotEffectivenessA[0];
+        for (int i = 0; i < aliveA; i++) {
+            if (slotEffectivenessA[i] != effectiveness) {
+                return false;
+            }
+        }
+        for (int i = 0; i < aliveB; i++) {
+            if (slotEffectivenessB[i] != effectiveness) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
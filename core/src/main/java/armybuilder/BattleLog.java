@@ -0,0 +1,190 @@
+package armybuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+
+/**
+ * Class to represent a log of battles, recording each round as one packed long so that a battle can be
+ * replayed exactly with BattleReplay. A round event holds the indices of the fighting units within their
+ * armies, the distance between them, the combat result and the difference in effectiveness that the
+ * health deltas are a fraction of. Each battle ends with an event holding its outcome.
+ *
+ * Events are kept in a growable array, or, if the log was given a channel, written to the channel
+ * whenever the buffer fills up, so that logs of any length can be streamed to a file.
+ */
+class BattleLog implements AutoCloseable {
+
+    // Largest army whose unit indices fit in an event.
+    static final int MAX_UNITS = 1 << 12;
+
+    // Event layout: unit A index in bits 0-11, unit B index in bits 12-23, distance in bits 24-27,
+    // combat result in bits 28-29, effectiveness difference in bits 30-61 and event type in bits 62-63.
+    // A battle end event holds the outcome in its low bits.
+    private static final int UNIT_BITS = 12;
+    private static final int DISTANCE_SHIFT = 24;
+    private static final int RESULT_SHIFT = 28;
+    private static final int DIFFERENCE_SHIFT = 30;
+    private static final long UNIT_MASK = MAX_UNITS - 1;
+    private static final long TYPE_END = 1L << 62;
+
+    // Number of events buffered before they are written to the channel.
+    static final int STREAM_BUFFER_EVENTS = 8192;
+
+    private long[] events;
+    private int size;
+    private final WritableByteChannel channel;
+    private final ByteBuffer bytes;
+
+    // Initializes an empty log that keeps its events in memory.
+    public BattleLog() {
+        this.events = new long[256];
+        this.channel = null;
+        this.bytes = null;
+    }
+
+    // Initializes an empty log that streams its events to the given channel.
+    public BattleLog(WritableByteChannel channel) {
+        this.events = new long[STREAM_BUFFER_EVENTS];
+        this.channel = channel;
+        this.bytes = ByteBuffer.allocate(STREAM_BUFFER_EVENTS * Long.BYTES);
+    }
+
+    // Initializes a log that streams its events to a new file at the given path.
+    public static BattleLog streamTo(Path path) throws IOException {
+        return new BattleLog(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                              StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    // Reads every event in a file written by a streaming log. The file is read in chunks, as it is written,
+    // so logs larger than a single buffer can hold are read too.
+    public static BattleLog read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length % Long.BYTES != 0) {
+                throw new IOException(path + ": not a battle log");
+            }
+            if (length / Long.BYTES > Integer.MAX_VALUE - 8) {
+                throw new IOException(path + ": battle log has too many events to read into memory");
+            }
+            int count = (int) (length / Long.BYTES);
+
+            BattleLog log = new BattleLog();
+            log.events = new long[Math.max(count, 1)];
+            ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_EVENTS * Long.BYTES);
+            int read = 0;
+            while (read < count) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), (long) (count - read) * Long.BYTES));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        throw new IOException(path + ": battle log ended early");
+                    }
+                }
+                buffer.flip();
+                int events = buffer.remaining() / Long.BYTES;
+                buffer.asLongBuffer().get(log.events, read, events);
+                read += events;
+            }
+            log.size = count;
+            return log;
+        }
+    }
+
+    // Records a round of combat between the unit of Army A at index unitA and the unit of Army B at index unitB.
+    void recordRound(int unitA, int unitB, int distance, CombatResult result, int difference) {
+        add(unitA | ((long) unitB << UNIT_BITS) | ((long) distance << DISTANCE_SHIFT)
+            | ((long) result.ordinal() << RESULT_SHIFT) | ((long) difference << DIFFERENCE_SHIFT));
+    }
+
+    // Records the end of a battle.
+    void recordEnd(BattleOutcome outcome) {
+        add(TYPE_END | outcome.ordinal());
+    }
+
+    private void add(long event) {
+        if (size == events.length) {
+            if (channel != null) {
+                flush();
+            } else {
+                events = Arrays.copyOf(events, events.length * 2);
+            }
+        }
+        events[size++] = event;
+    }
+
+    // Writes the buffered events to the channel, if the log streams to one.
+    public void flush() {
+        if (channel == null || size == 0) {
+            return;
+        }
+        bytes.clear();
+        bytes.asLongBuffer().put(events, 0, size);
+        bytes.limit(size * Long.BYTES);
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        size = 0;
+    }
+
+    // Writes any buffered events and closes the channel, if the log streams to one.
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    // Removes every event from the log.
+    public void clear() {
+        size = 0;
+    }
+
+    // Retrieves and returns the number of events held in memory.
+    public int size() {
+        return size;
+    }
+
+    public long getEvent(int index) {
+        return events[index];
+    }
+
+    public static boolean isBattleEnd(long event) {
+        return (event & TYPE_END) != 0;
+    }
+
+    public static BattleOutcome getOutcome(long event) {
+        return BattleOutcome.values()[(int) (event & 0x3)];
+    }
+
+    public static int getUnitA(long event) {
+        return (int) (event & UNIT_MASK);
+    }
+
+    public static int getUnitB(long event) {
+        return (int) ((event >>> UNIT_BITS) & UNIT_MASK);
+    }
+
+    public static int getDistance(long event) {
+        return (int) ((event >>> DISTANCE_SHIFT) & 0xF);
+    }
+
+    public static CombatResult getResult(long event) {
+        return CombatResult.values()[(int) ((event >>> RESULT_SHIFT) & 0x3)];
+    }
+
+    public static int getDifference(long event) {
+        return (int) ((event >>> DIFFERENCE_SHIFT) & 0xFFFFFFFFL);
+    }
+}
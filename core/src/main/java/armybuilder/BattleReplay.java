@@ -0,0 +1,123 @@
+package armybuilder;
+
+import java.util.List;
+
+
+/**
+ * Class that replays a battle recorded in a BattleLog between the same two armies, applying each logged
+ * round in turn instead of drawing random numbers. A replay can be stepped one round at a time to
+ * inspect the health of every unit, or run to the end to reproduce the battle's outcome.
+ */
+class BattleReplay {
+
+    private final List<Unit> unitsA;
+    private final List<Unit> unitsB;
+    private final BattleLog log;
+
+    // Health of each unit, indexed by its position in its army.
+    private final double[] healthA;
+    private final double[] healthB;
+
+    private int nextEvent;
+    private int round;
+    private BattleOutcome outcome;
+
+    // Initializes a replay of the battle whose first event is at the given index of the log.
+    public BattleReplay(Army armyA, Army armyB, BattleLog log, int firstEvent) {
+        this.unitsA = armyA.getSelectedUnits();
+        this.unitsB = armyB.getSelectedUnits();
+        this.log = log;
+        this.nextEvent = firstEvent;
+
+        healthA = new double[unitsA.size()];
+        for (int i = 0; i < healthA.length; i++) {
+            healthA[i] = unitsA.get(i).profile().effectiveness;
+        }
+        healthB = new double[unitsB.size()];
+        for (int i = 0; i < healthB.length; i++) {
+            healthB[i] = unitsB.get(i).profile().effectiveness;
+        }
+    }
+
+    // Applies the next round of the battle, returning false once the battle has ended.
+    public boolean step() {
+        if (outcome != null) {
+            return false;
+        }
+        if (nextEvent >= log.size()) {
+            throw new IllegalStateException("Battle log ends before the battle does");
+        }
+
+        long event = log.getEvent(nextEvent++);
+        if (BattleLog.isBattleEnd(event)) {
+            outcome = BattleLog.getOutcome(event);
+            return false;
+        }
+
+        int a = BattleLog.getUnitA(event);
+        int b = BattleLog.getUnitB(event);
+        int distance = BattleLog.getDistance(event);
+        CombatResult result = BattleLog.getResult(event);
+        double difference = BattleLog.getDifference(event);
+
+        // Checks that the logged round was fought by these armies.
+        if (a >= healthA.length || b >= healthB.length
+                || UnitCombat.resolve(unitsA.get(a), unitsB.get(b), distance) != result) {
+            throw new IllegalStateException("Round " + (round + 1) + " of the battle log doesn't match the armies");
+        }
+
+        // Reduces unit health the same way the battle did.
+        if (result == CombatResult.A_WINS) {
+            healthB[b] -= 0.5 * difference;
+            healthA[a] -= 0.2 * difference;
+        } else if (result == CombatResult.B_WINS) {
+            healthA[a] -= 0.5 * difference;
+            healthB[b] -= 0.2 * difference;
+        } else {
+            healthA[a] -= 0.1 * difference;
+            healthB[b] -= 0.1 * difference;
+        }
+        round++;
+        return true;
+    }
+
+    // Applies every remaining round of the battle and returns its outcome.
+    public BattleOutcome run() {
+        while (step()) {
+            // Keeps stepping until the battle end event.
+        }
+        return outcome;
+    }
+
+    // Retrieves and returns the outcome of the battle, or null if the replay hasn't reached the end.
+    public BattleOutcome getOutcome() {
+        return outcome;
+    }
+
+    // Retrieves and returns the number of rounds replayed so far.
+    public int getRound() {
+        return round;
+    }
+
+    // Retrieves and returns the index of the log event following the last one replayed, which is the
+    // first event of the next battle once the replay has ended.
+    public int getNextEvent() {
+        return nextEvent;
+    }
+
+    public double getHealthA(int unit) {
+        return healthA[unit];
+    }
+
+    public double getHealthB(int unit) {
+        return healthB[unit];
+    }
+
+    public boolean isDeadA(int unit) {
+        return healthA[unit] <= 0;
+    }
+
+    public boolean isDeadB(int unit) {
+        return healthB[unit] <= 0;
+    }
+}
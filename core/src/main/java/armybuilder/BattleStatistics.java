@@ -0,0 +1,214 @@
+package armybuilder;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/**
+ * Class to represent statistics gathered over many battles between the same two armies: the outcomes on
+ * each battlefield, the number of enemy units each unit killed, the number of battles each unit died in,
+ * and the distribution of the number of rounds battles took. Every count is held in a primitive array of
+ * a fixed size, so the statistics take the same memory however many battles they cover. Statistics are
+ * not thread-safe; each worker fills its own and they are combined with merge().
+ */
+final class BattleStatistics {
+
+    // Number of power-of-two buckets in the rounds histogram, laid out as in Histogram.
+    static final int ROUND_BUCKETS = Histogram.BUCKETS;
+
+    private static final int OUTCOMES = BattleOutcome.values().length;
+    private static final int BATTLEFIELDS = Battlefield.CONDITIONS * Battlefield.CONDITIONS;
+
+    private final int unitCountA;
+    private final int unitCountB;
+
+    // Number of battles with each outcome on battlefield i, at index i * OUTCOMES + outcome.
+    private final long[] outcomes = new long[BATTLEFIELDS * OUTCOMES];
+
+    // Number of enemy units killed by, and battles lost by, each unit, indexed by its position in its army.
+    private final long[] killsA;
+    private final long[] deathsA;
+    private final long[] killsB;
+    private final long[] deathsB;
+
+    private final long[] roundCounts = new long[ROUND_BUCKETS];
+    private long roundsSum;
+    private long roundsMax;
+    private long battles;
+
+    // Initializes empty statistics for armies with the given numbers of units.
+    public BattleStatistics(int unitCountA, int unitCountB) {
+        this.unitCountA = unitCountA;
+        this.unitCountB = unitCountB;
+        this.killsA = new long[unitCountA];
+        this.deathsA = new long[unitCountA];
+        this.killsB = new long[unitCountB];
+        this.deathsB = new long[unitCountB];
+    }
+
+    // Counts the units that died in a round of combat between unit unitA of Army A and unit unitB of
+    // Army B, each killed by the other.
+    void recordDeaths(int unitA, boolean deadA, int unitB, boolean deadB) {
+        if (deadA) {
+            deathsA[unitA]++;
+            killsB[unitB]++;
+        }
+        if (deadB) {
+            deathsB[unitB]++;
+            killsA[unitA]++;
+        }
+    }
+
+    // Counts a finished battle on the battlefield with the given index.
+    void recordBattle(int battlefield, BattleOutcome outcome, int rounds) {
+        outcomes[battlefield * OUTCOMES + outcome.ordinal()]++;
+        roundCounts[Math.min(ROUND_BUCKETS - Long.numberOfLeadingZeros(rounds), ROUND_BUCKETS - 1)]++;
+        roundsSum += rounds;
+        roundsMax = Math.max(roundsMax, rounds);
+        battles++;
+    }
+
+    // Adds the counts of other statistics, gathered for the same armies, to these ones.
+    public BattleStatistics merge(BattleStatistics other) {
+        if (other.unitCountA != unitCountA || other.unitCountB != unitCountB) {
+            throw new IllegalArgumentException("Cannot merge statistics of armies with different numbers of units");
+        }
+        add(outcomes, other.outcomes);
+        add(killsA, other.killsA);
+        add(deathsA, other.deathsA);
+        add(killsB, other.killsB);
+        add(deathsB, other.deathsB);
+        add(roundCounts, other.roundCounts);
+        roundsSum += other.roundsSum;
+        roundsMax = Math.max(roundsMax, other.roundsMax);
+        battles += other.battles;
+        return this;
+    }
+
+    private static void add(long[] counts, long[] otherCounts) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += otherCounts[i];
+        }
+    }
+
+    // Returns a copy of the statistics that doesn't change as these ones do.
+    public BattleStatistics copy() {
+        return new BattleStatistics(unitCountA, unitCountB).merge(this);
+    }
+
+    public int getUnitCountA() {
+        return unitCountA;
+    }
+
+    public int getUnitCountB() {
+        return unitCountB;
+    }
+
+    // Retrieves and returns the number of battles counted.
+    public long getBattles() {
+        return battles;
+    }
+
+    // Retrieves and returns the number of battles counted on the given battlefield.
+    public long getBattles(Battlefield battlefield) {
+        long count = 0;
+        for (int outcome = 0; outcome < OUTCOMES; outcome++) {
+            count += outcomes[battlefield.index() * OUTCOMES + outcome];
+        }
+        return count;
+    }
+
+    // Retrieves and returns the number of battles on the given battlefield that had the given outcome.
+    public long getOutcomes(Battlefield battlefield, BattleOutcome outcome) {
+        return outcomes[battlefield.index() * OUTCOMES + outcome.ordinal()];
+    }
+
+    // Retrieves and returns the number of battles on any battlefield that had the given outcome.
+    public long getOutcomes(BattleOutcome outcome) {
+        long count = 0;
+        for (int battlefield = 0; battlefield < BATTLEFIELDS; battlefield++) {
+            count += outcomes[battlefield * OUTCOMES + outcome.ordinal()];
+        }
+        return count;
+    }
+
+    // Retrieves and returns the number of Army B units killed by the unit of Army A at the given position.
+    public long getKillsA(int unit) {
+        return killsA[unit];
+    }
+
+    // Retrieves and returns the number of Army A units killed by the unit of Army B at the given position.
+    public long getKillsB(int unit) {
+        return killsB[unit];
+    }
+
+    // Returns the fraction of battles the unit of Army A at the given position survived.
+    public double getSurvivalRateA(int unit) {
+        return battles == 0 ? 0.0 : 1.0 - (double) deathsA[unit] / battles;
+    }
+
+    // Returns the fraction of battles the unit of Army B at the given position survived.
+    public double getSurvivalRateB(int unit) {
+        return battles == 0 ? 0.0 : 1.0 - (double) deathsB[unit] / battles;
+    }
+
+    // Retrieves and returns the distribution of the number of rounds battles took.
+    public HistogramSnapshot getRounds() {
+        return new HistogramSnapshot(roundCounts.clone(), roundsSum, roundsMax);
+    }
+
+    // Writes every count, in a layout read back by read().
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(unitCountA);
+        out.writeInt(unitCountB);
+        out.writeLong(battles);
+        out.writeLong(roundsSum);
+        out.writeLong(roundsMax);
+        writeCounts(out, outcomes);
+        writeCounts(out, roundCounts);
+        writeCounts(out, killsA);
+        writeCounts(out, deathsA);
+        writeCounts(out, killsB);
+        writeCounts(out, deathsB);
+    }
+
+    private static void writeCounts(DataOutput out, long[] counts) throws IOException {
+        for (long count : counts) {
+            out.writeLong(count);
+        }
+    }
+
+    // Reads statistics written by write().
+    public static BattleStatistics read(DataInput in) throws IOException {
+        int unitCountA = in.readInt();
+        int unitCountB = in.readInt();
+        if (unitCountA < 0 || unitCountB < 0) {
+            throw new IOException("Invalid unit counts in battle statistics");
+        }
+        BattleStatistics statistics = new BattleStatistics(unitCountA, unitCountB);
+        statistics.battles = in.readLong();
+        statistics.roundsSum = in.readLong();
+        statistics.roundsMax = in.readLong();
+        readCounts(in, statistics.outcomes);
+        readCounts(in, statistics.roundCounts);
+        readCounts(in, statistics.killsA);
+        readCounts(in, statistics.deathsA);
+        readCounts(in, statistics.killsB);
+        readCounts(in, statistics.deathsB);
+        return statistics;
+    }
+
+    private static void readCounts(DataInput in, long[] counts) throws IOException {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = in.readLong();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("battles=%d A wins=%d B wins=%d draws=%d rounds: %s", battles,
+            getOutcomes(BattleOutcome.ARMY_A_WINS), getOutcomes(BattleOutcome.ARMY_B_WINS),
+            getOutcomes(BattleOutcome.DRAW), getRounds());
+    }
+}
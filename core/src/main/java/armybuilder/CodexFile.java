@@ -0,0 +1,303 @@
+package armybuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Class that reads and writes codex units in a compact binary columnar file. The file is read through
+ * a read-only memory mapping, so opening it only reads the header and checks the string table, unit
+ * stats are only read from the file when they are used, and several processes opening the same file
+ * share one copy of it in the page cache.
+ *
+ * The file starts with a header of four ints: the magic number, the format version, the number of
+ * units and the number of distinct strings. It is followed by one column per stat holding that stat for
+ * every unit, the double columns first so that they are aligned, then the string table, which holds the
+ * offset of each distinct string followed by the strings encoded in UTF-8. Each unit's name and its roles,
+ * written as by Unit.joinRoles(), are stored as indices into the string table.
+ */
+class CodexFile {
+
+    // Identifies a binary codex file ("CDXB").
+    static final int MAGIC = 0x43445842;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+
+    // Writes every unit in the list to a binary codex file, storing each distinct name and list of roles
+    // only once.
+    public static void write(List<Unit> units, Path path) throws IOException {
+
+        int n = units.size();
+        Map<String, Integer> nameIndices = new HashMap<>();
+        List<byte[]> names = new ArrayList<>();
+        int nameBytes = 0;
+        for (Unit unit : units) {
+            for (String string : new String[] {unit.name, unit.joinRoles()}) {
+                if (!nameIndices.containsKey(string)) {
+                    byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+                    nameIndices.put(string, names.size());
+                    names.add(encoded);
+                    nameBytes += encoded.length;
+                }
+            }
+        }
+
+        long size = HEADER_BYTES + (long) n * (3 * Double.BYTES + 8 * Integer.BYTES)
+            + (long) (names.size() + 1) * Integer.BYTES + nameBytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Codex of " + n + " units is too large for a single binary codex file");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(names.size());
+        for (Unit unit : units) {
+            buffer.putDouble(unit.armor);
+        }
+        for (Unit unit : units) {
+            buffer.putDouble(unit.shootingAccuracy);
+        }
+        for (Unit unit : units) {
+            buffer.putDouble(unit.closeCombatAccuracy);
+        }
+        for (Unit unit : units) {
+            buffer.putInt(unit.speed);
+        }
+        for (Unit unit : units) {
+            buffer.putInt(unit.wounds);
+        }
+        for (Unit unit : units) {
+            buffer.putInt(unit.shootingDamage);
+        }
+        for (Unit unit : units) {
+            buffer.putInt(unit.closeCombatDamage);
+        }
+        for (Unit unit : units) {
+            buffer.putInt(unit.pointCost);
+        }
+        for (Unit unit : units) {
+            buffer.putInt(unit.profile().effectiveness);
+        }
+        for (Unit unit : units) {
+            buffer.putInt(nameIndices.get(unit.name));
+        }
+        for (Unit unit : units) {
+            buffer.putInt(nameIndices.get(unit.joinRoles()));
+        }
+
+        int offset = 0;
+        for (byte[] name : names) {
+            buffer.putInt(offset);
+            offset += name.length;
+        }
+        buffer.putInt(offset);
+        for (byte[] name : names) {
+            buffer.put(name);
+        }
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    // Memory-maps a binary codex file.
+    public static MappedCodex open(Path path) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + ": file is too large to be a binary codex file");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException(path + ": not a binary codex file");
+            }
+            int version = buffer.getInt(4);
+            if (version != VERSION) {
+                throw new IOException(path + ": unsupported binary codex version " + version);
+            }
+            return new MappedCodex(buffer, path);
+        }
+    }
+}
+
+
+/**
+ * Class to represent a binary codex file mapped into memory. Stats are read straight from the mapping,
+ * and Unit objects are only created for the units that are asked for.
+ */
+class MappedCodex {
+
+    private final ByteBuffer buffer;
+    private final Path path;
+    private final int unitCount;
+    private final int nameCount;
+
+    // Byte offset of each column and of the name table.
+    private final int armorOffset;
+    private final int shootingAccuracyOffset;
+    private final int closeCombatAccuracyOffset;
+    private final int speedOffset;
+    private final int woundsOffset;
+    private final int shootingDamageOffset;
+    private final int closeCombatDamageOffset;
+    private final int pointCostOffset;
+    private final int effectivenessOffset;
+    private final int nameIndexOffset;
+    private final int rolesIndexOffset;
+    private final int nameOffsetsOffset;
+    private final int nameBytesOffset;
+
+    // Units created so far, so that each unit is only created once and keeps its identity.
+    private final AtomicReferenceArray<Unit> units;
+
+    MappedCodex(ByteBuffer buffer, Path path) throws IOException {
+        this.buffer = buffer;
+        this.path = path;
+        this.unitCount = buffer.getInt(8);
+        this.nameCount = buffer.getInt(12);
+
+        long doubleColumn = (long) unitCount * Double.BYTES;
+        long intColumn = (long) unitCount * Integer.BYTES;
+        long namesStart = CodexFile.HEADER_BYTES + 3 * doubleColumn + 8 * intColumn;
+        if (unitCount < 0 || nameCount < 0 || namesStart + (long) (nameCount + 1) * Integer.BYTES > buffer.limit()) {
+            throw new IOException(path + ": truncated binary codex file");
+        }
+
+        this.armorOffset = CodexFile.HEADER_BYTES;
+        this.shootingAccuracyOffset = (int) (armorOffset + doubleColumn);
+        this.closeCombatAccuracyOffset = (int) (shootingAccuracyOffset + doubleColumn);
+        this.speedOffset = (int) (closeCombatAccuracyOffset + doubleColumn);
+        this.woundsOffset = (int) (speedOffset + intColumn);
+        this.shootingDamageOffset = (int) (woundsOffset + intColumn);
+        this.closeCombatDamageOffset = (int) (shootingDamageOffset + intColumn);
+        this.pointCostOffset = (int) (closeCombatDamageOffset + intColumn);
+        this.effectivenessOffset = (int) (pointCostOffset + intColumn);
+        this.nameIndexOffset = (int) (effectivenessOffset + intColumn);
+        this.rolesIndexOffset = (int) (nameIndexOffset + intColumn);
+        this.nameOffsetsOffset = (int) namesStart;
+        this.nameBytesOffset = nameOffsetsOffset + (nameCount + 1) * Integer.BYTES;
+        this.units = new AtomicReferenceArray<>(unitCount);
+
+        // Checks that the string offsets start at zero and never decrease, and that the last string ends
+        // within the file, so that a truncated file fails here rather than when a name is read.
+        int previous = 0;
+        for (int string = 0; string <= nameCount; string++) {
+            int offset = buffer.getInt(nameOffsetsOffset + string * Integer.BYTES);
+            if (offset < previous || (string == 0 && offset != 0)) {
+                throw new IOException(path + ": corrupt string table in binary codex file");
+            }
+            previous = offset;
+        }
+        if ((long) nameBytesOffset + previous > buffer.limit()) {
+            throw new IOException(path + ": truncated binary codex file");
+        }
+    }
+
+    // Retrieves and returns the number of units in the codex.
+    public int size() {
+        return unitCount;
+    }
+
+    public String getName(int index) {
+        return getString(buffer.getInt(nameIndexOffset + index * Integer.BYTES));
+    }
+
+    // Retrieves and returns the unit's roles as written by Unit.joinRoles().
+    public String getRoles(int index) {
+        return getString(buffer.getInt(rolesIndexOffset + index * Integer.BYTES));
+    }
+
+    // Decodes the string at the given index of the string table.
+    private String getString(int string) {
+        if (string < 0 || string >= nameCount) {
+            throw new UncheckedIOException(new IOException(path + ": string index " + string
+                                                           + " out of range in binary codex file"));
+        }
+        int start = buffer.getInt(nameOffsetsOffset + string * Integer.BYTES);
+        int end = buffer.getInt(nameOffsetsOffset + (string + 1) * Integer.BYTES);
+        byte[] bytes = new byte[end - start];
+        buffer.get(nameBytesOffset + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int getSpeed(int index) {
+        return buffer.getInt(speedOffset + index * Integer.BYTES);
+    }
+
+    public int getWounds(int index) {
+        return buffer.getInt(woundsOffset + index * Integer.BYTES);
+    }
+
+    public double getArmor(int index) {
+        return buffer.getDouble(armorOffset + index * Double.BYTES);
+    }
+
+    public double getShootingAccuracy(int index) {
+        return buffer.getDouble(shootingAccuracyOffset + index * Double.BYTES);
+    }
+
+    public int getShootingDamage(int index) {
+        return buffer.getInt(shootingDamageOffset + index * Integer.BYTES);
+    }
+
+    public double getCloseCombatAccuracy(int index) {
+        return buffer.getDouble(closeCombatAccuracyOffset + index * Double.BYTES);
+    }
+
+    public int getCloseCombatDamage(int index) {
+        return buffer.getInt(closeCombatDamageOffset + index * Integer.BYTES);
+    }
+
+    public int getPointCost(int index) {
+        return buffer.getInt(pointCostOffset + index * Integer.BYTES);
+    }
+
+    // Retrieves and returns the unit's effectiveness, as stored when the file was written.
+    public int getEffectiveness(int index) {
+        return buffer.getInt(effectivenessOffset + index * Integer.BYTES);
+    }
+
+    // Retrieves and returns the unit at the given index, creating it on first use.
+    public Unit getUnit(int index) {
+        Unit unit = units.get(index);
+        if (unit == null) {
+            Unit created = new Unit(getName(index), getSpeed(index), getWounds(index), getArmor(index),
+                                    getShootingAccuracy(index), getShootingDamage(index),
+                                    getCloseCombatAccuracy(index), getCloseCombatDamage(index),
+                                    getPointCost(index));
+            created.addRoles(getRoles(index));
+            unit = units.compareAndSet(index, null, created) ? created : units.get(index);
+        }
+        return unit;
+    }
+
+    // Returns a codex whose units are created from the mapping as they are accessed.
+    public Codex toCodex() {
+        return new Codex(new AbstractList<Unit>() {
+            @Override
+            public Unit get(int index) {
+                return getUnit(index);
+            }
+
+            @Override
+            public int size() {
+                return unitCount;
+            }
+        });
+    }
+}
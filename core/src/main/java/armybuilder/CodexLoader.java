@@ -0,0 +1,184 @@
+package armybuilder;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Class that reads and writes codex units in a simple comma-separated text format. Each line holds
+ * one unit's name, speed, wounds, armor, shooting accuracy, shooting damage, close combat accuracy,
+ * close combat damage, and point cost, in that order, optionally followed by the unit's roles separated
+ * by semicolons. Blank lines and lines starting with '#' are ignored, and so is a first non-blank,
+ * non-comment line holding exactly the header columns, with or without the roles column. A name may be enclosed in double
+ * quotes to hold commas, with any double quote inside it written twice.
+ */
+class CodexLoader {
+
+    // Number of fields on each unit line, without and with the roles column.
+    static final int FIELDS = 9;
+    static final int FIELDS_WITH_ROLES = 10;
+
+    // Column names of the header line.
+    static final List<String> HEADER = List.of("name", "speed", "wounds", "armor", "shootingAccuracy", "shootingDamage",
+                                               "closeCombatAccuracy", "closeCombatDamage", "pointCost", "roles");
+
+    // Reads every unit in a text codex file and returns a codex holding them.
+    public static Codex readCsv(Path path) throws IOException {
+
+        List<Unit> units = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            boolean firstRecord = true;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                List<String> fields = splitFields(trimmed, path, lineNumber);
+                boolean header = firstRecord && isHeader(fields);
+                firstRecord = false;
+                if (header) {
+                    continue;
+                }
+                units.add(parseUnit(fields, path, lineNumber));
+            }
+        }
+
+        // Builds the precomputed stats of every unit once the codex is loaded.
+        for (Unit unit : units) {
+            unit.profile();
+        }
+        return new Codex(units);
+    }
+
+    // Writes every unit in the list to a text codex file, with a header line. Names that hold a line
+    // break can't be written to a line of the file and are rejected.
+    public static void writeCsv(List<Unit> units, Path path) throws IOException {
+
+        for (Unit unit : units) {
+            if (unit.name.indexOf('\n') >= 0 || unit.name.indexOf('\r') >= 0) {
+                throw new IllegalArgumentException("Unit name " + Json.write(unit.name) + " holds a line break");
+            }
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(String.join(",", HEADER));
+            writer.newLine();
+            for (Unit unit : units) {
+                writer.write(quote(unit.name) + "," + unit.speed + "," + unit.wounds + "," + unit.armor + ","
+                    + unit.shootingAccuracy + "," + unit.shootingDamage + "," + unit.closeCombatAccuracy + ","
+                    + unit.closeCombatDamage + "," + unit.pointCost + "," + unit.joinRoles());
+                writer.newLine();
+            }
+        }
+    }
+
+    // Converts a text codex file into a binary codex file that can be memory-mapped with CodexFile.open().
+    public static void compile(Path csvPath, Path binaryPath) throws IOException {
+        CodexFile.write(readCsv(csvPath).getUnits(), binaryPath);
+    }
+
+    // Checks if the fields of a line are exactly the header columns, with or without the roles column,
+    // ignoring case.
+    private static boolean isHeader(List<String> fields) {
+        if (fields.size() != FIELDS && fields.size() != FIELDS_WITH_ROLES) {
+            return false;
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            if (!fields.get(i).equalsIgnoreCase(HEADER.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Encloses a name in double quotes if it holds a comma or a double quote, starts with '#', or starts
+    // or ends with whitespace, so that it is read back unchanged.
+    private static String quote(String name) {
+        if (name.indexOf(',') < 0 && name.indexOf('"') < 0 && !name.startsWith("#") && name.equals(name.trim())) {
+            return name;
+        }
+        return '"' + name.replace("\"", "\"\"") + '"';
+    }
+
+    // Splits a line into its fields, trimming unquoted fields and unquoting quoted ones.
+    private static List<String> splitFields(String line, Path path, int lineNumber) throws IOException {
+
+        List<String> fields = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+                position++;
+            }
+            if (position < line.length() && line.charAt(position) == '"') {
+                StringBuilder field = new StringBuilder();
+                position++;
+                while (true) {
+                    if (position >= line.length()) {
+                        throw new IOException(path + ":" + lineNumber + ": unterminated quoted field");
+                    }
+                    char c = line.charAt(position++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (position < line.length() && line.charAt(position) == '"') {
+                        field.append('"');
+                        position++;
+                    } else {
+                        break;
+                    }
+                }
+                while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+                    position++;
+                }
+                if (position < line.length() && line.charAt(position) != ',') {
+                    throw new IOException(path + ":" + lineNumber + ": unexpected text after quoted field");
+                }
+                fields.add(field.toString());
+            } else {
+                int end = line.indexOf(',', position);
+                if (end < 0) {
+                    end = line.length();
+                }
+                fields.add(line.substring(position, end).trim());
+                position = end;
+            }
+            if (position >= line.length()) {
+                return fields;
+            }
+            position++;
+        }
+    }
+
+    // Parses the fields of a single unit line.
+    private static Unit parseUnit(List<String> fields, Path path, int lineNumber) throws IOException {
+
+        if (fields.size() != FIELDS && fields.size() != FIELDS_WITH_ROLES) {
+            throw new IOException(path + ":" + lineNumber + ": expected " + FIELDS + " or " + FIELDS_WITH_ROLES
+                                  + " fields but found " + fields.size());
+        }
+        try {
+            Unit unit = new Unit(fields.get(0),
+                                 Integer.parseInt(fields.get(1)),
+                                 Integer.parseInt(fields.get(2)),
+                                 Double.parseDouble(fields.get(3)),
+                                 Double.parseDouble(fields.get(4)),
+                                 Integer.parseInt(fields.get(5)),
+                                 Double.parseDouble(fields.get(6)),
+                                 Integer.parseInt(fields.get(7)),
+                                 Integer.parseInt(fields.get(8)));
+            if (fields.size() == FIELDS_WITH_ROLES) {
+                unit.addRoles(fields.get(9));
+            }
+            return unit;
+        } catch (IllegalArgumentException e) {
+            throw new IOException(path + ":" + lineNumber + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package armybuilder;
+
+
+/**
+ * Class to represent a batch of independent combats between pairs of units, held as one array per stat so
+ * that every combat in the batch can be resolved at once. Each combat is given the effectiveness, shooting
+ * effectiveness and close combat effectiveness of both units, already truncated to ints as UnitProfile
+ * does, and the distance between them. Resolving the batch finds the result of each combat as
+ * UnitCombat.resolve would, and the damage each unit takes as the battle engines apply it.
+ *
+ * Batches are resolved with the JDK Vector API when the jdk.incubator.vector module is present, for
+ * example with "--add-modules jdk.incubator.vector", and with a scalar loop otherwise. Both give exactly
+ * the same results.
+ */
+final class CombatBatch {
+
+    // Whether batches are resolved with the Vector API. Can be turned off with -Darmybuilder.vector=false.
+    static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+        && !"false".equals(System.getProperty("armybuilder.vector"));
+
+    // Stats of the units in each combat.
+    final int[] effectivenessA;
+    final int[] shootingA;
+    final int[] meleeA;
+    final int[] effectivenessB;
+    final int[] shootingB;
+    final int[] meleeB;
+    final int[] distances;
+
+    // Result of each combat as a CombatResult ordinal, the difference in effectiveness and the damage each unit takes.
+    final int[] results;
+    final int[] differences;
+    final double[] damageA;
+    final double[] damageB;
+
+    private int size;
+
+    // Initializes an empty batch holding up to the given number of combats.
+    public CombatBatch(int capacity) {
+        effectivenessA = new int[capacity];
+        shootingA = new int[capacity];
+        meleeA = new int[capacity];
+        effectivenessB = new int[capacity];
+        shootingB = new int[capacity];
+        meleeB = new int[capacity];
+        distances = new int[capacity];
+        results = new int[capacity];
+        differences = new int[capacity];
+        damageA = new double[capacity];
+        damageB = new double[capacity];
+    }
+
+    // Adds a combat between two units at the given distance to the batch.
+    public void add(Unit unitA, Unit unitB, int distance) {
+        UnitProfile a = unitA.profile();
+        UnitProfile b = unitB.profile();
+        add(a.effectiveness, a.shootingEffectiveness, a.closeCombatEffectiveness,
+            b.effectiveness, b.shootingEffectiveness, b.closeCombatEffectiveness, distance);
+    }
+
+    // Adds a combat between two units with the given stats at the given distance to the batch.
+    public void add(int effectivenessA, int shootingA, int meleeA, int effectivenessB, int shootingB, int meleeB,
+                    int distance) {
+        if (size == distances.length) {
+            throw new IllegalStateException("Batch already holds " + size + " combats");
+        }
+        this.effectivenessA[size] = effectivenessA;
+        this.shootingA[size] = shootingA;
+        this.meleeA[size] = meleeA;
+        this.effectivenessB[size] = effectivenessB;
+        this.shootingB[size] = shootingB;
+        this.meleeB[size] = meleeB;
+        this.distances[size] = distance;
+        size++;
+    }
+
+    // Removes every combat from the batch.
+    public void clear() {
+        size = 0;
+    }
+
+    // Retrieves and returns the number of combats in the batch.
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return distances.length;
+    }
+
+    // Resolves every combat in the batch, with the Vector API if it is available.
+    public void resolve() {
+        if (VECTORIZED) {
+            VectorCombat.resolve(this, size);
+        } else {
+            resolveScalar(0, size);
+        }
+        Metrics.recordCombats(size);
+    }
+
+    // Resolves the combats from (inclusive) to to (exclusive) one at a time.
+    void resolveScalar(int from, int to) {
+        for (int i = from; i < to; i++) {
+            int combatA = distances[i] > 5 ? shootingA[i] : meleeA[i];
+            int combatB = distances[i] > 5 ? shootingB[i] : meleeB[i];
+            int difference = Math.abs(effectivenessA[i] - effectivenessB[i]);
+            differences[i] = difference;
+
+            // The winner of a combat takes 0.2 of the difference in damage and the loser 0.5, while a draw costs both 0.1.
+            if (combatA > combatB) {
+                results[i] = CombatResult.A_WINS.ordinal();
+                damageA[i] = 0.2 * difference;
+                damageB[i] = 0.5 * difference;
+            } else if (combatB > combatA) {
+                results[i] = CombatResult.B_WINS.ordinal();
+                damageA[i] = 0.5 * difference;
+                damageB[i] = 0.2 * difference;
+            } else {
+                results[i] = CombatResult.DRAW.ordinal();
+                damageA[i] = 0.1 * difference;
+                damageB[i] = 0.1 * difference;
+            }
+        }
+    }
+
+    public CombatResult getResult(int index) {
+        return CombatResult.values()[results[index]];
+    }
+
+    public int getDifference(int index) {
+        return differences[index];
+    }
+
+    // Retrieves and returns the health unit A loses in the combat at the given index.
+    public double getDamageA(int index) {
+        return damageA[index];
+    }
+
+    // Retrieves and returns the health unit B loses in the combat at the given index.
+    public double getDamageB(int index) {
+        return damageB[index];
+    }
+}
@@ -0,0 +1,213 @@
+package armybuilder;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+
+/**
+ * Class to represent a numbering of the units in a codex, shared by every CompactArmy built from it.
+ * Holds each unit's point cost and effectiveness in arrays, and a random hash weight per unit.
+ */
+final class CodexIndex {
+
+    private final Unit[] units;
+    private final Map<Unit, Integer> indices = new IdentityHashMap<>();
+    final int[] pointCosts;
+    final int[] effectiveness;
+    final long[] hashWeights;
+
+    public CodexIndex(Codex codex) {
+        this(codex.getUnits());
+    }
+
+    public CodexIndex(List<Unit> codexUnits) {
+        int n = codexUnits.size();
+        units = codexUnits.toArray(new Unit[0]);
+        pointCosts = new int[n];
+        effectiveness = new int[n];
+        hashWeights = new long[n];
+
+        SplittableRandom random = new SplittableRandom(n);
+        for (int i = 0; i < n; i++) {
+            indices.putIfAbsent(units[i], i);
+            pointCosts[i] = units[i].pointCost;
+            effectiveness[i] = units[i].profile().effectiveness;
+            hashWeights[i] = random.nextLong();
+        }
+    }
+
+    // Retrieves and returns the number of units in the codex.
+    public int size() {
+        return units.length;
+    }
+
+    public Unit getUnit(int index) {
+        return units[index];
+    }
+
+    // Retrieves and returns the index of a unit, or -1 if it isn't in the codex.
+    public int indexOf(Unit unit) {
+        return indices.getOrDefault(unit, -1);
+    }
+}
+
+
+/**
+ * Class to represent an army as the number of copies of each codex unit it holds. The total points,
+ * effectiveness and hash are kept up to date as units are added and removed, so reading them costs
+ * nothing, and two armies with the same units are equal regardless of the order the units were added.
+ * A compact army should not be changed while it is used as a key in a map or set.
+ */
+final class CompactArmy {
+
+    private final CodexIndex codex;
+    private final short[] counts;
+    private int unitCount;
+    private int totalPoints;
+    private int totalEffectiveness;
+    private long hash;
+
+    // Initializes an empty army for the given codex.
+    public CompactArmy(CodexIndex codex) {
+        this.codex = codex;
+        this.counts = new short[codex.size()];
+    }
+
+    private CompactArmy(CompactArmy other) {
+        this.codex = other.codex;
+        this.counts = other.counts.clone();
+        this.unitCount = other.unitCount;
+        this.totalPoints = other.totalPoints;
+        this.totalEffectiveness = other.totalEffectiveness;
+        this.hash = other.hash;
+    }
+
+    // Builds a compact army holding the same units as the given army.
+    public static CompactArmy of(CodexIndex codex, Army army) {
+        CompactArmy compactArmy = new CompactArmy(codex);
+        for (Unit unit : army.getSelectedUnits()) {
+            compactArmy.addUnit(unit);
+        }
+        return compactArmy;
+    }
+
+    // Returns a copy of the army that can be changed independently.
+    public CompactArmy copy() {
+        return new CompactArmy(this);
+    }
+
+    // Inserts a unit into the army.
+    public void addUnit(Unit unit) {
+        add(indexOf(unit));
+    }
+
+    // Inserts a copy of the unit at the given codex index into the army.
+    public void add(int index) {
+        if (counts[index] == Short.MAX_VALUE) {
+            throw new IllegalStateException("Army already holds the maximum number of " + codex.getUnit(index).name);
+        }
+        counts[index]++;
+        unitCount++;
+        totalPoints += codex.pointCosts[index];
+        totalEffectiveness += codex.effectiveness[index];
+        hash += codex.hashWeights[index];
+    }
+
+    // Removes a unit from the army, returning false if the army doesn't hold it.
+    public boolean removeUnit(Unit unit) {
+        return remove(indexOf(unit));
+    }
+
+    // Removes a copy of the unit at the given codex index from the army, returning false if the army doesn't hold it.
+    public boolean remove(int index) {
+        if (counts[index] == 0) {
+            return false;
+        }
+        counts[index]--;
+        unitCount--;
+        totalPoints -= codex.pointCosts[index];
+        totalEffectiveness -= codex.effectiveness[index];
+        hash -= codex.hashWeights[index];
+        return true;
+    }
+
+    // Retrieves and returns the number of copies of the unit at the given codex index.
+    public int getCount(int index) {
+        return counts[index];
+    }
+
+    // Retrieves and returns the number of units in the army.
+    public int getUnitCount() {
+        return unitCount;
+    }
+
+    public CodexIndex getCodex() {
+        return codex;
+    }
+
+    // Retrieves and returns the total point cost of the army.
+    public int calculateTotalPoints() {
+        return totalPoints;
+    }
+
+    // Retrieves and returns the total effectiveness of the army, scaled as Army.calculateTotalEffectiveness() does.
+    public int calculateTotalEffectiveness() {
+        return totalEffectiveness / 50;
+    }
+
+    // Retrieves and returns the summed effectiveness of the units in the army.
+    public int getUnitEffectiveness() {
+        return totalEffectiveness;
+    }
+
+    // Builds an Army holding the same units, in codex order.
+    public Army toArmy() {
+        Army army = new Army();
+        for (int i = 0; i < counts.length; i++) {
+            for (int copy = 0; copy < counts[i]; copy++) {
+                army.addUnit(codex.getUnit(i));
+            }
+        }
+        return army;
+    }
+
+    private int indexOf(Unit unit) {
+        int index = codex.indexOf(unit);
+        if (index < 0) {
+            throw new IllegalArgumentException(unit.name + " is not in the codex");
+        }
+        return index;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof CompactArmy)) {
+            return false;
+        }
+        CompactArmy army = (CompactArmy) other;
+        return hash == army.hash && codex == army.codex && Arrays.equals(counts, army.counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+
+    // Prints all of the units in the army in an organized format.
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Units:\n");
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                sb.append(counts[i]).append("x ").append(codex.getUnit(i)).append("\n");
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,311 @@
+package armybuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ *  Class to represent a limit on the number of units in an army that have a role, or on the number of
+ *  units in the army when the role is null.
+ */
+final class ArmyRule {
+
+    // No upper limit on the number of units.
+    static final int UNLIMITED = Integer.MAX_VALUE;
+
+    final String role;
+    final int min;
+    final int max;
+
+    public ArmyRule(String role, int min, int max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Invalid unit count limits " + min + " to " + max);
+        }
+        this.role = role;
+        this.min = min;
+        this.max = max;
+    }
+
+    // Requires at least count units with the role.
+    public static ArmyRule atLeast(String role, int count) {
+        return new ArmyRule(role, count, UNLIMITED);
+    }
+
+    // Allows at most count units with the role.
+    public static ArmyRule atMost(String role, int count) {
+        return new ArmyRule(role, 0, count);
+    }
+
+    // Allows at most count units in the army.
+    public static ArmyRule maxUnits(int count) {
+        return new ArmyRule(null, 0, count);
+    }
+
+    // Checks if the rule counts the given unit.
+    public boolean appliesTo(Unit unit) {
+        return role == null || unit.hasRole(role);
+    }
+
+    // Checks if the army has a number of units counted by the rule within its limits.
+    public boolean isSatisfiedBy(Army army) {
+        int count = 0;
+        for (Unit unit : army.getSelectedUnits()) {
+            if (appliesTo(unit)) {
+                count++;
+            }
+        }
+        return count >= min && count <= max;
+    }
+
+    @Override
+    public String toString() {
+        String units = role == null ? "units" : role + " units";
+        if (max == UNLIMITED) {
+            return "at least " + min + " " + units;
+        }
+        return min == 0 ? "at most " + max + " " + units : min + " to " + max + " " + units;
+    }
+}
+
+
+/**
+ *  Class that builds the most effective army within a budget that also follows a set of rules limiting the
+ *  number of units with given roles. Adding each rule as another dimension of the DP table would multiply
+ *  its size by the rule's limit, so the optimizer keeps a sparse set of partial armies instead.
+ *
+ *  Partial armies are grouped by how many units each rule has counted so far, with counts capped at the
+ *  largest value the rule can tell apart, and within each group only partial armies that no other one
+ *  beats on both cost and effectiveness are kept. Each unit of the roster is then either added to or left
+ *  out of every kept army. Groups that went over a rule's maximum, or can no longer reach a rule's minimum
+ *  with the units that are left, are dropped as they go. The number of armies kept per group never exceeds
+ *  the number of distinct costs within the budget, and is usually far smaller.
+ *
+ *  Only the total effectiveness of the army is guaranteed to be the best possible. Without rules it equals
+ *  that of buildOptimalArmy, but where several armies tie, the optimizer may pick a different one.
+ */
+class ConstrainedOptimizer {
+
+    // Largest number of unit count combinations the rules may allow.
+    static final int MAX_GROUPS = 1 << 20;
+
+    private final List<Unit> roster;
+    private final List<ArmyRule> rules;
+
+    // Initializes the optimizer for the given roster, where each unit may be taken once, and rules.
+    public ConstrainedOptimizer(List<Unit> roster, List<ArmyRule> rules) {
+        this.roster = new ArrayList<>(roster);
+        this.rules = new ArrayList<>(rules);
+    }
+
+    // Builds an army within the budget that follows every rule and has the greatest total effectiveness any
+    // such army can have. When several armies tie, it may pick a different one than buildOptimalArmy would.
+    // Returns null if no army within the budget follows the rules.
+    public Army optimize(int maxPoints) {
+
+        if (maxPoints < 0) {
+            return null;
+        }
+        int n = roster.size();
+        int ruleCount = rules.size();
+
+        // Finds the units each rule counts, and how many of them are left from each position onwards.
+        boolean[][] counted = new boolean[ruleCount][n];
+        int[][] remaining = new int[ruleCount][n + 1];
+        for (int r = 0; r < ruleCount; r++) {
+            for (int i = n - 1; i >= 0; i--) {
+                counted[r][i] = rules.get(r).appliesTo(roster.get(i));
+                remaining[r][i] = remaining[r][i + 1] + (counted[r][i] ? 1 : 0);
+            }
+        }
+
+        // Caps each rule's count at its maximum when the roster could go over it, and at its minimum
+        // otherwise, as larger counts can't change whether the rule is followed.
+        int[] caps = new int[ruleCount];
+        int[] strides = new int[ruleCount];
+        long groups = 1;
+        for (int r = 0; r < ruleCount; r++) {
+            ArmyRule rule = rules.get(r);
+            if (rule.min > remaining[r][0]) {
+                return null;
+            }
+            caps[r] = rule.max < remaining[r][0] ? rule.max : rule.min;
+            strides[r] = (int) groups;
+            groups *= caps[r] + 1;
+            if (groups > MAX_GROUPS) {
+                throw new IllegalArgumentException("The rules allow more than " + MAX_GROUPS + " unit count combinations");
+            }
+        }
+
+        Frontier[] frontiers = new Frontier[(int) groups];
+        frontiers[0] = Frontier.EMPTY_ARMY;
+
+        for (int i = 0; i < n; i++) {
+            Unit unit = roster.get(i);
+            int cost = unit.pointCost;
+            int effectiveness = unit.profile().effectiveness;
+            Frontier[] next = frontiers.clone();
+
+            for (int group = 0; group < frontiers.length; group++) {
+                if (frontiers[group] == null) {
+                    continue;
+                }
+                int target = addUnit(group, i, counted, caps, strides);
+                if (target >= 0) {
+                    next[target] = Frontier.merge(next[target], frontiers[group], i, cost, effectiveness, maxPoints);
+                }
+            }
+
+            // Drops the groups that can no longer reach every rule's minimum with the remaining units.
+            for (int group = 0; group < next.length; group++) {
+                if (next[group] != null && !canReachMinimums(group, i + 1, remaining, caps, strides)) {
+                    next[group] = null;
+                }
+            }
+            frontiers = next;
+        }
+
+        // Picks the most effective army among the groups that meet every rule's minimum.
+        Frontier best = null;
+        int bestIndex = -1;
+        for (int group = 0; group < frontiers.length; group++) {
+            Frontier frontier = frontiers[group];
+            if (frontier == null || !canReachMinimums(group, n, remaining, caps, strides)) {
+                continue;
+            }
+            int last = frontier.size - 1;
+            if (best == null || frontier.values[last] > best.values[bestIndex]
+                    || (frontier.values[last] == best.values[bestIndex] && frontier.costs[last] < best.costs[bestIndex])) {
+                best = frontier;
+                bestIndex = last;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+
+        // The picks run from the last unit added back to the first.
+        Army optimalArmy = new Army();
+        for (Pick pick = best.picks[bestIndex]; pick != null; pick = pick.previous) {
+            optimalArmy.addUnit(roster.get(pick.unit));
+        }
+        return optimalArmy;
+    }
+
+    // Returns the group an army of the given group moves to when the unit at the given position is added,
+    // or -1 if adding it would go over a rule's maximum.
+    private int addUnit(int group, int unit, boolean[][] counted, int[] caps, int[] strides) {
+        int target = group;
+        for (int r = 0; r < caps.length; r++) {
+            if (!counted[r][unit]) {
+                continue;
+            }
+            int count = group / strides[r] % (caps[r] + 1);
+            if (count < caps[r]) {
+                target += strides[r];
+            } else if (caps[r] == rules.get(r).max) {
+                return -1;
+            }
+        }
+        return target;
+    }
+
+    // Checks if an army of the given group could still meet every rule's minimum with the units from the
+    // given position onwards.
+    private boolean canReachMinimums(int group, int position, int[][] remaining, int[] caps, int[] strides) {
+        for (int r = 0; r < caps.length; r++) {
+            int count = group / strides[r] % (caps[r] + 1);
+            if (count + remaining[r][position] < rules.get(r).min) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     *  Class to represent a unit picked for a partial army, linked to the unit picked before it. Armies
+     *  that share their first picks share the same links.
+     */
+    private static final class Pick {
+        final int unit;
+        final Pick previous;
+
+        Pick(int unit, Pick previous) {
+            this.unit = unit;
+            this.previous = previous;
+        }
+    }
+
+
+    /**
+     *  Class to represent the partial armies of a group that no other army of the group beats, ordered by
+     *  increasing cost and so by increasing effectiveness.
+     */
+    private static final class Frontier {
+
+        static final Frontier EMPTY_ARMY = new Frontier(new int[] {0}, new int[] {0}, new Pick[] {null}, 1);
+
+        final int[] costs;
+        final int[] values;
+        final Pick[] picks;
+        final int size;
+
+        Frontier(int[] costs, int[] values, Pick[] picks, int size) {
+            this.costs = costs;
+            this.values = values;
+            this.picks = picks;
+            this.size = size;
+        }
+
+        // Merges the armies of a group with the armies of another group that have the given unit added,
+        // keeping the armies within the budget that no other army beats. On a tie the army without the
+        // unit is kept. Returns null if no army is left.
+        static Frontier merge(Frontier kept, Frontier added, int unit, int cost, int effectiveness, int maxPoints) {
+            int keptSize = kept == null ? 0 : kept.size;
+            int capacity = keptSize + added.size;
+            int[] costs = new int[capacity];
+            int[] values = new int[capacity];
+            Pick[] picks = new Pick[capacity];
+            int size = 0;
+
+            int k = 0;
+            int a = 0;
+            while (k < keptSize || a < added.size) {
+                long addedCost = a < added.size ? (long) added.costs[a] + cost : Long.MAX_VALUE;
+                if (k >= keptSize && addedCost > maxPoints) {
+                    break;
+                }
+                int nextCost;
+                int nextValue;
+                Pick nextPick;
+                if (k < keptSize && kept.costs[k] <= addedCost) {
+                    nextCost = kept.costs[k];
+                    nextValue = kept.values[k];
+                    nextPick = kept.picks[k];
+                    if (kept.costs[k] == addedCost && added.values[a] + effectiveness > nextValue) {
+                        nextValue = added.values[a] + effectiveness;
+                        nextPick = new Pick(unit, added.picks[a]);
+                    }
+                    if (kept.costs[k] == addedCost) {
+                        a++;
+                    }
+                    k++;
+                } else {
+                    nextCost = (int) addedCost;
+                    nextValue = added.values[a] + effectiveness;
+                    nextPick = new Pick(unit, added.picks[a]);
+                    a++;
+                }
+
+                // Keeps the army only if it is more effective than every cheaper one.
+                if (size == 0 || nextValue > values[size - 1]) {
+                    costs[size] = nextCost;
+                    values[size] = nextValue;
+                    picks[size] = nextPick;
+                    size++;
+                }
+            }
+            return size == 0 ? null : new Frontier(costs, values, picks, size);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package armybuilder;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Class to represent a solved 0/1 knapsack over items with point costs and values. Only the final row
+ * of best values is kept, along with one bit per (item, column) recording whether taking the item
+ * improved on the previous row, which is exactly the condition ArmyOptimizer's backtracking checks.
+ * The bits allow the selection for any budget up to the solved one to be recovered without re-solving.
+ */
+final class KnapsackSolution {
+
+    // Smallest number of columns worth splitting across threads. Smaller knapsacks are solved serially.
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    // Smallest number of columns a single task fills. Kept a multiple of 64 so that tasks never share a
+    // word of decision bits.
+    static final int COLUMNS_PER_TASK = 1 << 13;
+
+    private final int[] costs;
+    private final int maxPoints;
+
+    // Greatest common divisor of the point costs. Columns are budgets divided by it, since only multiples
+    // of it can be spent.
+    private final int divisor;
+
+    // Best value for each column, and the decision bits of each item, words per item.
+    private final int[] best;
+    private final long[] taken;
+    private final int words;
+
+    private KnapsackSolution(int[] costs, int maxPoints, int divisor, int[] best, long[] taken, int words) {
+        this.costs = costs;
+        this.maxPoints = maxPoints;
+        this.divisor = divisor;
+        this.best = best;
+        this.taken = taken;
+        this.words = words;
+    }
+
+    // Solves the 0/1 knapsack problem for the given item costs and values and every budget up to maxPoints.
+    public static KnapsackSolution solve(int[] costs, int[] values, int maxPoints) {
+
+        OptimizationEvent event = new OptimizationEvent();
+        event.begin();
+        long startTime = Metrics.startTime();
+
+        int n = costs.length;
+
+        // Scales point costs down by their greatest common divisor.
+        int divisor = divisor(costs);
+        int columns = maxPoints < 0 ? 0 : maxPoints / divisor + 1;
+
+        int[] best = new int[columns];
+        int words = (columns + 63) >>> 6;
+        long[] taken = new long[Math.multiplyExact(n, words)];
+
+        for (int i = 0; i < n; i++) {
+            int cost = costs[i] / divisor;
+            int value = values[i];
+            int row = i * words;
+
+            // Visits columns from high to low so each cell still reads the previous row's values.
+            for (int column = columns - 1; column >= cost; column--) {
+                int candidate = best[column - cost] + value;
+                if (candidate > best[column]) {
+                    best[column] = candidate;
+                    taken[row + (column >>> 6)] |= 1L << column;
+                }
+            }
+        }
+
+        Metrics.recordOptimization(event, startTime, n, (long) n * columns,
+                                   (long) columns * Integer.BYTES + (long) taken.length * Long.BYTES);
+        return new KnapsackSolution(costs.clone(), maxPoints, divisor, best, taken, words);
+    }
+
+    // Solves the same knapsack as solve(), splitting each item's row into blocks of columns that are filled
+    // in parallel on the given pool. Every cell only depends on the previous row, so the blocks of a row are
+    // independent once the previous row is complete. The result is identical to solve()'s, which is used
+    // instead when the budget has fewer than PARALLEL_THRESHOLD columns or the pool has a single thread.
+    public static KnapsackSolution solve(int[] costs, int[] values, int maxPoints, ForkJoinPool pool) {
+
+        int divisor = divisor(costs);
+        int columns = maxPoints < 0 ? 0 : maxPoints / divisor + 1;
+        if (columns < PARALLEL_THRESHOLD || pool.getParallelism() < 2) {
+            return solve(costs, values, maxPoints);
+        }
+
+        OptimizationEvent event = new OptimizationEvent();
+        event.begin();
+        long startTime = Metrics.startTime();
+
+        int n = costs.length;
+        int words = (columns + 63) >>> 6;
+        long[] taken = new long[Math.multiplyExact(n, words)];
+
+        // Splits rows into a few blocks per thread, each a whole number of decision words.
+        int columnsPerTask = Math.max(COLUMNS_PER_TASK, columns / (4 * pool.getParallelism()));
+        columnsPerTask = (columnsPerTask + 63) & ~63;
+
+        // Fills each row from the previous one, swapping the two rows after each item.
+        int[] previous = new int[columns];
+        int[] current = new int[columns];
+        for (int i = 0; i < n; i++) {
+            pool.invoke(new RowTask(previous, current, taken, i * words, costs[i] / divisor, values[i],
+                                    0, columns, columnsPerTask));
+            int[] filled = current;
+            current = previous;
+            previous = filled;
+        }
+
+        Metrics.recordOptimization(event, startTime, n, (long) n * columns,
+                                   2L * columns * Integer.BYTES + (long) taken.length * Long.BYTES);
+        return new KnapsackSolution(costs.clone(), maxPoints, divisor, previous, taken, words);
+    }
+
+    // Fills the columns from (inclusive) to to (exclusive) of an item's row from the previous row, and
+    // records the item's decision bits for them.
+    private static void fillColumns(int[] previous, int[] current, long[] taken, int row, int cost, int value,
+                                    int from, int to) {
+
+        // Columns the item doesn't fit in carry forward the previous row.
+        int split = Math.max(from, Math.min(to, cost));
+        System.arraycopy(previous, from, current, from, split - from);
+
+        // Kept free of branches and of writes to the decision bits so that the JIT can vectorize it.
+        for (int column = split; column < to; column++) {
+            current[column] = Math.max(previous[column], previous[column - cost] + value);
+        }
+
+        // The item was taken wherever it improved on the previous row, the same condition solve() records.
+        for (int column = split; column < to; column++) {
+            if (current[column] != previous[column]) {
+                taken[row + (column >>> 6)] |= 1L << column;
+            }
+        }
+    }
+
+    // Retrieves and returns the budget the knapsack was solved for.
+    public int getMaxPoints() {
+        return maxPoints;
+    }
+
+    // Retrieves and returns the greatest common divisor of the point costs.
+    public int getDivisor() {
+        return divisor;
+    }
+
+    // Retrieves and returns the best total value within the given budget.
+    public int bestValue(int points) {
+        checkBudget(points);
+        return points < 0 ? 0 : best[points / divisor];
+    }
+
+    // Backtracks through the recorded decisions and returns which items are selected within the given budget.
+    public boolean[] select(int points) {
+        checkBudget(points);
+        boolean[] selected = new boolean[costs.length];
+        for (int i = costs.length - 1; i >= 0 && points > 0; i--) {
+            int column = points / divisor;
+            if ((taken[i * words + (column >>> 6)] & (1L << column)) != 0) {
+                selected[i] = true;
+                points -= costs[i];
+            }
+        }
+        return selected;
+    }
+
+    // Ensures a budget is within the solved range.
+    private void checkBudget(int points) {
+        if (points > maxPoints) {
+            throw new IllegalArgumentException("Budget " + points + " exceeds the solved budget " + maxPoints);
+        }
+    }
+
+    // Returns the greatest common divisor of the point costs, or one if every cost is zero.
+    private static int divisor(int[] costs) {
+        int divisor = 0;
+        for (int cost : costs) {
+            divisor = gcd(divisor, cost);
+        }
+        return divisor == 0 ? 1 : divisor;
+    }
+
+    // Returns the greatest common divisor of two point costs.
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return Math.abs(a);
+    }
+
+
+    /**
+     *  Task that fills a range of columns of one item's row, splitting it in half until it is small
+     *  enough to fill directly. Ranges are split on multiples of 64 columns, so no two tasks write to the
+     *  same word of decision bits.
+     */
+    private static final class RowTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] previous;
+        private final int[] current;
+        private final long[] taken;
+        private final int row;
+        private final int cost;
+        private final int value;
+        private final int from;
+        private final int to;
+        private final int columnsPerTask;
+
+        RowTask(int[] previous, int[] current, long[] taken, int row, int cost, int value, int from, int to,
+                int columnsPerTask) {
+            this.previous = previous;
+            this.current = current;
+            this.taken = taken;
+            this.row = row;
+            this.cost = cost;
+            this.value = value;
+            this.from = from;
+            this.to = to;
+            this.columnsPerTask = columnsPerTask;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > columnsPerTask) {
+                int middle = from + Math.max(1, (to - from) / columnsPerTask / 2) * columnsPerTask;
+                invokeAll(new RowTask(previous, current, taken, row, cost, value, from, middle, columnsPerTask),
+                          new RowTask(previous, current, taken, row, cost, value, middle, to, columnsPerTask));
+                return;
+            }
+            fillColumns(previous, current, taken, row, cost, value, from, to);
+        }
+    }
+}
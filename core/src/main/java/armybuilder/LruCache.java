@@ -0,0 +1,45 @@
+package armybuilder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Class to represent a thread-safe cache that holds a bounded number of entries, discarding the
+ * least recently used entry once it is full.
+ */
+class LruCache<K, V> {
+
+    // Entries in order of use, from least to most recently used.
+    private final LinkedHashMap<K, V> entries;
+
+    // Initializes an empty cache that holds at most the given number of entries.
+    public LruCache(int capacity) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    // Retrieves and returns the value cached for a key, or null if there is none.
+    public synchronized V get(K key) {
+        return entries.get(key);
+    }
+
+    // Inserts a value into the cache.
+    public synchronized void put(K key, V value) {
+        entries.put(key, value);
+    }
+
+    // Retrieves and returns the number of cached entries.
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Removes every entry from the cache.
+    public synchronized void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,1052 @@
+/**
+ * This program implements an army optimization tool inspired by Warhammer 40,000,
+ * allowing users to build the most effective army configuration within a given points
+ * budget. The program makes use of dynamic programming to compute the optimal
+ * combination of units from a codex, balancing each unit's attributes (speed, wounds,
+ * armor, accuracy) and the overall effectiveness in battle. The program includes several
+ * custom functions that allow the user to add units to the codex, compute the most effective
+ * army configuration, simulate battles, and calculate the effectiveness of the chosen army
+ * based on combat roles and battlefield conditions. The program first initializes a codex
+ * to store all available units, where each unit is assigned specific attributes for comparison 
+ * during the optimization process. Then, the program initializes two Army objects, representing
+ * two opposing armies (Army A and Army B), which will hold the units selected for each army. 
+ * Next the program calls the addUnit method to insert six random units from the codex into each 
+ * army. After inserting the units into both armies, the program outputs the current army compositions,
+ * including their total points and effectiveness. The program then employs dynamic programming 
+ * utilizing the ArmyOptimizer class to optimize each army within a predefined point budget. The optimizer
+ * iterates through the available units and selects the most effective combination of units for the 
+ * set cost limit. Once both armies are optimized, the program outputs the final compositions of the 
+ * optimized armies, including their total points and effectiveness. Next, the program simulates a 
+ * battle between the two optimized armies by invoking the BattleSimulator class, factoring in 
+ * battlefield size and objectives. It then outputs the size of the battlefield and number of objectives.
+ * Lastly, the program outputs the result of the battle, determining which army wins based on who has the 
+ * most effective team.
+ * 
+ *
+ * @author Nigel Arias, Sidney Gills, Brianne Tomaszek
+ */
+
+package armybuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+ 
+  
+/**
+ * Class to represent a unit in the army.
+ */
+class Unit {
+    
+    // Declares the unit's properties of its name speed, wounds, armor, shooting accuracy, shooting damage, 
+    // close combat accuracy, close combat damage, and point cost.
+    String name;
+    int speed;
+    int wounds;
+    double armor;
+    double shootingAccuracy;
+    int shootingDamage;
+    double closeCombatAccuracy;
+    int closeCombatDamage;
+    int pointCost;
+
+    // Character that separates the unit's roles when they are written as a single field.
+    static final char ROLE_SEPARATOR = ';';
+
+    // Role tags of the unit, such as "infantry" or "vehicle", which army rules can limit.
+    Set<String> roles = new HashSet<>();
+
+    // Precomputed stats of the unit, built on first use. Code that changes any of the attributes above
+    // after the profile has been built must call invalidateProfile() so that it is rebuilt.
+    private volatile UnitProfile profile;
+
+    // Initializes a new unit with its attributes: name, speed, wounds, armor, shooting accuracy, 
+    // shooting damage, close combat accuracy, close combat damage, and point cost.
+    // Each attribute is set using the values provided as parameters when creating the unit.
+    public Unit(String name, int speed, int wounds, double armor, double shootingAccuracy, int shootingDamage,
+                double closeCombatAccuracy, int closeCombatDamage, int pointCost) {
+        
+        this.name = name;
+        this.speed = speed;
+        this.wounds = wounds;
+        this.armor = armor;
+        this.shootingAccuracy = shootingAccuracy;
+        this.shootingDamage = shootingDamage;
+        this.closeCombatAccuracy = closeCombatAccuracy;
+        this.closeCombatDamage = closeCombatDamage;
+        this.pointCost = pointCost;
+    }
+
+    // Calculates the overall effectiveness of a unit based on its stats.
+    public int calculateEffectiveness() {
+
+        return (int) ((this.shootingDamage * this.shootingAccuracy + this.closeCombatDamage * this.closeCombatAccuracy)
+                        * (this.speed + this.wounds * this.armor));
+    }
+
+    // Retrieves and returns the precomputed stats of the unit, building them if needed.
+    public UnitProfile profile() {
+        UnitProfile current = profile;
+        if (current == null) {
+            current = new UnitProfile(this);
+            profile = current;
+        }
+        return current;
+    }
+
+    // Discards the precomputed stats of the unit so that they are rebuilt from its current attributes.
+    public void invalidateProfile() {
+        profile = null;
+    }
+
+    // Tags the unit with a role. Role names are stored in codex files, so they can't be empty or hold the
+    // role separator, a comma or a line break.
+    public void addRole(String role) {
+        if (role.isEmpty() || role.indexOf(ROLE_SEPARATOR) >= 0 || role.indexOf(',') >= 0
+                || role.indexOf('\n') >= 0 || role.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Invalid role name \"" + role + "\"");
+        }
+        roles.add(role);
+    }
+
+    // Tags the unit with every role in a list written by joinRoles().
+    public void addRoles(String joinedRoles) {
+        for (String role : joinedRoles.split(String.valueOf(ROLE_SEPARATOR))) {
+            if (!role.trim().isEmpty()) {
+                addRole(role.trim());
+            }
+        }
+    }
+
+    // Returns the unit's roles in sorted order separated by ROLE_SEPARATOR, as codex files store them.
+    public String joinRoles() {
+        return String.join(String.valueOf(ROLE_SEPARATOR), new TreeSet<>(roles));
+    }
+
+    // Checks if the unit is tagged with the given role.
+    public boolean hasRole(String role) {
+        return roles.contains(role);
+    }
+
+    // Retrieves and returns the roles the unit is tagged with.
+    public Set<String> getRoles() {
+        return roles;
+    }
+
+    // Prints the unit's details in an orgainized format.
+    @Override
+    public String toString() {
+        
+        return name + " [Speed: " + speed + ", Wounds: " + wounds + ", Armor: " + armor +
+            ", Shooting: " + shootingDamage + " (" + shootingAccuracy + ")" +
+            ", Close Combat: " + closeCombatDamage + " (" + closeCombatAccuracy + ")" + 
+            ", Points: " + pointCost + "]";
+    }
+}
+ 
+ 
+/**
+ * Class to represent a codex that holds all available units.
+ */
+class Codex {
+    
+    // Copy limit of a unit that may be taken any number of times.
+    static final int UNLIMITED = -1;
+    
+    // Units that are available within the codex.
+    List<Unit> units;
+
+    // Maximum number of copies of each unit an army may take. Units without a limit may be taken once.
+    Map<Unit, Integer> copyLimits = new HashMap<>();
+
+    // Intializes the codex with predefined units. 
+    public Codex() {
+        
+        // Declares and intializes an array.
+        units = new ArrayList<>();
+        
+        // Inserts units into the codex.
+        units.add(new Unit("Spartan", 8, 12, 0.95, 0.9, 20, 0.85, 15, 150));     // Spartan: Super soldiers.
+        units.add(new Unit("Elite", 7, 10, 0.9, 0.85, 18, 0.8, 14, 130));       // Elite: Covenant warriors.
+        units.add(new Unit("Grunt", 5, 5, 0.6, 0.5, 8, 0.4, 6, 40));           // Grunt: Covenant infantry.
+        units.add(new Unit("Jackal", 6, 6, 0.7, 0.65, 10, 0.6, 8, 50));        // Jackal: Shield-wielding infantry.
+        units.add(new Unit("Hunter", 4, 20, 0.95, 0.7, 25, 0.9, 30, 200));     // Hunter: Heavy covenant infantry.
+        units.add(new Unit("ODST", 7, 9, 0.85, 0.85, 16, 0.75, 12, 100));      // ODST: Orbital Drop Shock Troopers.
+        units.add(new Unit("Brute", 6, 14, 0.8, 0.75, 22, 0.85, 20, 160));     // Brute: Covenant heavy infantry.
+        units.add(new Unit("Warthog", 10, 12, 0.9, 0.6, 15, 0.6, 10, 120));    // Warthog: Light vehicle.
+        units.add(new Unit("Ghost", 12, 8, 0.85, 0.8, 18, 0.5, 8, 100));       // Ghost: Covenant scout vehicle.
+        units.add(new Unit("Banshee", 14, 10, 0.85, 0.9, 20, 0.6, 12, 180));   // Banshee: Aerial attack vehicle.
+        units.add(new Unit("Marine", 6, 7, 0.75, 0.7, 10, 0.5, 8, 60));        // Marine: Standard infantry.
+        units.add(new Unit("Scorpion", 8, 25, 0.95, 0.5, 40, 0.85, 25, 300));  // Scorpion: Heavy tank.
+        units.add(new Unit("Mongoose", 15, 6, 0.8, 0.3, 5, 0.2, 5, 70));       // Mongoose: Fast scout vehicle.
+        units.add(new Unit("Wraith", 7, 20, 0.9, 0.85, 30, 0.9, 28, 250));     /// Wraith: Heavy tank.
+        units.add(new Unit("Sniper", 5, 5, 0.98, 0.6, 12, 0.3, 10, 100));      // Sniper: High accuracy, long-range.
+        units.add(new Unit("Engineer", 6, 4, 0.7, 0.4, 5, 0.3, 6, 50));        // Engineer: Support, repairs allies.
+        units.add(new Unit("Chopper", 12, 8, 0.85, 0.75, 15, 0.7, 10, 110));   // Chopper: Fast, hit-and-run vehicle.
+        units.add(new Unit("Master Chief", 10, 15, 0.98, 0.95, 30, 0.9, 20, 250)); // Master Chief: Legendary Spartan.
+        units.add(new Unit("Arbiter", 9, 13, 0.96, 0.9, 28, 0.88, 18, 240));     // Arbiter: Elite commander.
+        units.add(new Unit("Sergeant Johnson", 8, 10, 0.9, 0.85, 15, 0.8, 12, 150)); // Sgt. Johnson: "Your daddy."
+
+        // Tags each unit with its roles.
+        tagUnits("infantry", "Spartan", "Elite", "Grunt", "Jackal", "Hunter", "ODST", "Brute", "Marine", "Sniper",
+                 "Engineer", "Master Chief", "Arbiter", "Sergeant Johnson");
+        tagUnits("vehicle", "Warthog", "Ghost", "Banshee", "Scorpion", "Mongoose", "Wraith", "Chopper");
+        tagUnits("hero", "Master Chief", "Arbiter", "Sergeant Johnson");
+        
+        // Builds the precomputed stats of every unit once the codex is loaded.
+        for (Unit unit : units) {
+            unit.profile();
+        }
+    }
+
+    // Initializes the codex with the given units, for example units loaded by CodexLoader.
+    public Codex(List<Unit> units) {
+        
+        this.units = units;
+    }
+
+    // Tags every unit of the codex with one of the given names with the role.
+    private void tagUnits(String role, String... names) {
+        Set<String> tagged = new HashSet<>(Arrays.asList(names));
+        for (Unit unit : units) {
+            if (tagged.contains(unit.name)) {
+                unit.addRole(role);
+            }
+        }
+    }
+
+    // Retrieves and returns the list of units found within the codex.
+    public List<Unit> getUnits() {
+        return units;
+    }
+
+    // Sets the maximum number of copies of a unit an army may take, or UNLIMITED.
+    public void setCopyLimit(Unit unit, int limit) {
+        copyLimits.put(unit, limit);
+    }
+
+    // Retrieves and returns the maximum number of copies of a unit an army may take, or UNLIMITED.
+    public int getCopyLimit(Unit unit) {
+        return copyLimits.getOrDefault(unit, 1);
+    }
+}
+ 
+
+/**
+ * Class to represent an army that holds all selected units.
+ */
+class Army {
+
+    List<Unit> selectedUnits;
+
+    // Initalizes the army.
+    public Army() {
+        
+        selectedUnits = new ArrayList<>();
+    }
+
+    // Inserts a unit into the army.
+    public void addUnit(Unit unit) {
+        
+        selectedUnits.add(unit);
+    }
+
+    // Retrieves and returns the list of units found within the army.
+    public List<Unit> getSelectedUnits() {
+        
+        return selectedUnits;
+    }
+
+    // Calculates the total point cost of the army.
+    public int calculateTotalPoints() {
+        
+        return selectedUnits.stream().mapToInt(unit -> unit.pointCost).sum();
+    }
+
+    // Calculates the total effectiveness of the army.
+    public int calculateTotalEffectiveness() {
+        
+        return (int) selectedUnits.stream().mapToInt(unit -> unit.profile().effectiveness).sum() / 50;
+    }
+
+    // Prints all of the units in the army in an orgainized format.
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Units:\n");
+        for (Unit unit : selectedUnits) {
+            sb.append(unit).append("\n");
+        }
+        return sb.toString();
+    }
+}
+ 
+
+/**
+ * Class to optimize an army based on point budget using dynamic programming.
+ */
+class ArmyOptimizer {
+
+    // Maximum number of battlefield-optimized armies kept in the cache.
+    static final int BATTLEFIELD_CACHE_SIZE = 4096;
+
+    // Armies already optimized for a battlefield, keyed by their units, budget and battlefield.
+    private static final LruCache<BattlefieldKey, Army> battlefieldCache = new LruCache<>(BATTLEFIELD_CACHE_SIZE);
+
+    // Declares variables.
+    private Army army;
+    private int maxPoints;
+
+    // Initializes the optimizer with an army and a max point variables.
+    public ArmyOptimizer(Army army, int maxPoints) {
+        this.army = army;
+        this.maxPoints = maxPoints;
+    }
+
+    // Optimizes the army by selecting the best units within the point restriction.
+    public Army optimize() {
+        
+        // Retrieve the codex (available units) from the army.
+        List<Unit> codex = new ArrayList<>(army.selectedUnits);
+        
+        // Use the buildOptimalArmy method to get the optimized army.
+        return buildOptimalArmy(codex, maxPoints);
+    }
+
+    // Optimizes the army for the given battlefield by selecting the best units within the point restriction.
+    public Army optimize(Battlefield battlefield) {
+        
+        return buildOptimalArmy(new ArrayList<>(army.selectedUnits), maxPoints, battlefield);
+    }
+    
+    
+    // Using dynamic programming to select and build the optimal army of units.
+    public static Army buildOptimalArmy(List<Unit> codex, int maxPoints) {
+
+        OptimizationEvent event = new OptimizationEvent();
+        event.begin();
+        long startTime = Metrics.startTime();
+
+        int n = codex.size();
+        
+        // Dynamic programming (DP) table to store best values.
+        int[][] dp = new int[n + 1][maxPoints + 1];
+
+        // Fill DP table.
+        for (int i = 1; i <= n; i++) {
+            Unit unit = codex.get(i - 1);
+            int effectiveness = unit.profile().effectiveness;
+            for (int points = 0; points <= maxPoints; points++) {
+                
+                // Checks to see that an invalid index is not accessed.  
+                if (unit.pointCost <= points) {
+                    dp[i][points] = Math.max(dp[i - 1][points],
+                                            dp[i - 1][points - unit.pointCost] + effectiveness);
+                } else {
+                    
+                    // If unit can't be added, carry forward the previous value.
+                    dp[i][points] = dp[i - 1][points]; 
+                }
+            }
+        }
+
+        // Backtrack to find the optimal unit composition.
+        Army optimalArmy = new Army();
+        int points = maxPoints;
+
+        for (int i = n; i > 0 && points > 0; i--) {
+            if (dp[i][points] != dp[i - 1][points]) {
+                Unit unit = codex.get(i - 1);
+
+                // Ensure we only add the unit if we can afford its cost.
+                if (unit.pointCost <= points) {
+                    optimalArmy.addUnit(unit);
+                    points -= unit.pointCost; // Deduct the unit's point cost.
+                }
+            }
+        }
+
+        long cells = (long) (n + 1) * (maxPoints + 1);
+        Metrics.recordOptimization(event, startTime, n, cells, cells * Integer.BYTES);
+        return optimalArmy;
+    }
+
+
+    // Builds the army with the highest battle effectiveness on the given battlefield, weighting each unit's
+    // range, melee and speed by the battlefield's multipliers as BattleSimulator does. The army-size force
+    // multiplier is left out as it doesn't add up per unit. Results are cached, so asking again for the
+    // same units, budget and battlefield returns immediately.
+    public static Army buildOptimalArmy(List<Unit> codex, int maxPoints, Battlefield battlefield) {
+
+        int n = codex.size();
+        UnitProfile[] profiles = new UnitProfile[n];
+        for (int i = 0; i < n; i++) {
+            profiles[i] = codex.get(i).profile();
+        }
+
+        BattlefieldKey key = new BattlefieldKey(profiles, maxPoints, battlefield.index());
+        Army cachedArmy = battlefieldCache.get(key);
+        if (cachedArmy == null) {
+            int[] costs = new int[n];
+            int[] values = new int[n];
+            for (int i = 0; i < n; i++) {
+                costs[i] = codex.get(i).pointCost;
+                values[i] = (int) profiles[i].battlefieldScore(battlefield);
+            }
+
+            boolean[] selected = selectItems(costs, values, maxPoints);
+            cachedArmy = new Army();
+            for (int i = n - 1; i >= 0; i--) {
+                if (selected[i]) {
+                    cachedArmy.addUnit(codex.get(i));
+                }
+            }
+            battlefieldCache.put(key, cachedArmy);
+        }
+
+        // Returns a copy so that callers adding units don't change the cached army.
+        Army optimalArmy = new Army();
+        for (Unit unit : cachedArmy.getSelectedUnits()) {
+            optimalArmy.addUnit(unit);
+        }
+        return optimalArmy;
+    }
+
+    // Builds the same army as buildOptimalArmy for the table's codex units, looking it up in the
+    // precomputed table when the budget is within it and solving the knapsack otherwise.
+    public static Army buildOptimalArmy(MappedArmyTable table, int maxPoints) {
+
+        if (table.contains(maxPoints)) {
+            return table.getArmy(maxPoints);
+        }
+        return buildOptimalArmyCompact(table.getUnits(), maxPoints);
+    }
+
+    // Builds the most effective army within the budget that also follows every rule, such as a maximum
+    // number of units or a minimum number of units with a role. Returns null if no army follows the rules.
+    public static Army buildOptimalArmy(List<Unit> codex, int maxPoints, List<ArmyRule> rules) {
+
+        return new ConstrainedOptimizer(codex, rules).optimize(maxPoints);
+    }
+
+    // Builds the optimal army from the codex, taking each unit up to its copy limit in the codex.
+    public static Army buildOptimalArmy(Codex codex, int maxPoints) {
+
+        List<Unit> units = codex.getUnits();
+        int[] copyLimits = new int[units.size()];
+        for (int i = 0; i < copyLimits.length; i++) {
+            copyLimits[i] = codex.getCopyLimit(units.get(i));
+        }
+        return buildBoundedArmy(units, copyLimits, maxPoints);
+    }
+
+    // Builds the optimal army taking each unit at most its copy limit times, where Codex.UNLIMITED
+    // allows as many copies as the budget affords. Each unit's copies are split into bundles of
+    // 1, 2, 4, ... copies plus a remainder, which can be combined into any count up to the limit, so
+    // the knapsack only needs a logarithmic number of items per unit instead of one per copy.
+    public static Army buildBoundedArmy(List<Unit> units, int[] copyLimits, int maxPoints) {
+
+        List<Integer> bundleUnits = new ArrayList<>();
+        List<Integer> bundleCopies = new ArrayList<>();
+        for (int i = 0; i < units.size(); i++) {
+            Unit unit = units.get(i);
+            int limit = copyLimits[i];
+            if (limit == Codex.UNLIMITED) {
+                if (unit.pointCost <= 0) {
+                    throw new IllegalArgumentException(unit.name + " costs no points and cannot have unlimited copies");
+                }
+                limit = Math.max(maxPoints, 0) / unit.pointCost;
+            }
+
+            for (int copies = 1; limit > 0; copies *= 2) {
+                int bundle = Math.min(copies, limit);
+                limit -= bundle;
+
+                // Skips bundles that can never fit within the budget.
+                if ((long) bundle * unit.pointCost <= maxPoints) {
+                    bundleUnits.add(i);
+                    bundleCopies.add(bundle);
+                }
+            }
+        }
+
+        int[] costs = new int[bundleUnits.size()];
+        int[] values = new int[bundleUnits.size()];
+        for (int b = 0; b < costs.length; b++) {
+            Unit unit = units.get(bundleUnits.get(b));
+            costs[b] = bundleCopies.get(b) * unit.pointCost;
+            values[b] = bundleCopies.get(b) * unit.profile().effectiveness;
+        }
+
+        // Adds up the copies of each unit in the selected bundles.
+        boolean[] selected = selectItems(costs, values, maxPoints);
+        int[] counts = new int[units.size()];
+        for (int b = 0; b < selected.length; b++) {
+            if (selected[b]) {
+                counts[bundleUnits.get(b)] += bundleCopies.get(b);
+            }
+        }
+
+        Army optimalArmy = new Army();
+        for (int i = 0; i < counts.length; i++) {
+            for (int copy = 0; copy < counts[i]; copy++) {
+                optimalArmy.addUnit(units.get(i));
+            }
+        }
+        return optimalArmy;
+    }
+
+    // Builds the same army as buildOptimalArmy while keeping a single row of best values instead of the
+    // full DP table, so memory grows with the number of units times the budget in bits rather than ints.
+    public static Army buildOptimalArmyCompact(List<Unit> codex, int maxPoints) {
+
+        int n = codex.size();
+        int[] costs = new int[n];
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            Unit unit = codex.get(i);
+            costs[i] = unit.pointCost;
+            values[i] = unit.profile().effectiveness;
+        }
+
+        // Adds the selected units in the same order that backtracking the full table would.
+        boolean[] selected = selectItems(costs, values, maxPoints);
+        Army optimalArmy = new Army();
+        for (int i = n - 1; i >= 0; i--) {
+            if (selected[i]) {
+                optimalArmy.addUnit(codex.get(i));
+            }
+        }
+        return optimalArmy;
+    }
+
+    // Builds the same army as buildOptimalArmy, filling the DP table on the common fork-join pool when
+    // the budget is large enough to be worth splitting across threads.
+    public static Army buildOptimalArmyParallel(List<Unit> codex, int maxPoints) {
+
+        return buildOptimalArmyParallel(codex, maxPoints, ForkJoinPool.commonPool());
+    }
+
+    // Builds the same army as buildOptimalArmy, filling the DP table on the given pool when the budget is
+    // large enough to be worth splitting across threads.
+    public static Army buildOptimalArmyParallel(List<Unit> codex, int maxPoints, ForkJoinPool pool) {
+
+        int n = codex.size();
+        int[] costs = new int[n];
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            Unit unit = codex.get(i);
+            costs[i] = unit.pointCost;
+            values[i] = unit.profile().effectiveness;
+        }
+
+        boolean[] selected = KnapsackSolution.solve(costs, values, maxPoints, pool).select(maxPoints);
+        Army optimalArmy = new Army();
+        for (int i = n - 1; i >= 0; i--) {
+            if (selected[i]) {
+                optimalArmy.addUnit(codex.get(i));
+            }
+        }
+        return optimalArmy;
+    }
+
+    // Builds the optimal army for every request, solving requests that share a roster together. Returns
+    // the same armies as calling buildOptimalArmy for each request, in the order of the requests.
+    public static List<Army> buildOptimalArmies(List<OptimizationRequest> requests) {
+
+        return new BatchOptimizer().optimize(requests);
+    }
+
+    // Solves the 0/1 knapsack problem for the given item costs and values and returns which items are selected.
+    // Selects exactly the items that buildOptimalArmy's backtracking would for the same costs and values.
+    static boolean[] selectItems(int[] costs, int[] values, int maxPoints) {
+
+        return KnapsackSolution.solve(costs, values, maxPoints).select(maxPoints);
+    }
+
+    // Builds the Pareto front of point cost against effectiveness for every budget up to maxPoints in a
+    // single pass. The army for each point on the front is only built when it is requested.
+    public static ParetoFront buildParetoFront(List<Unit> codex, int maxPoints) {
+
+        List<Unit> units = new ArrayList<>(codex);
+        int[] costs = new int[units.size()];
+        int[] values = new int[units.size()];
+        for (int i = 0; i < costs.length; i++) {
+            costs[i] = units.get(i).pointCost;
+            values[i] = units.get(i).profile().effectiveness;
+        }
+        return new ParetoFront(units, KnapsackSolution.solve(costs, values, maxPoints));
+    }
+
+    /**
+     *  Class to represent the cache key of a battlefield-optimized army. Units are identified by their
+     *  profiles, so a unit whose profile was invalidated after its stats changed no longer matches.
+     */
+    private static final class BattlefieldKey {
+        private final UnitProfile[] profiles;
+        private final int maxPoints;
+        private final int battlefieldIndex;
+        private final int hash;
+
+        BattlefieldKey(UnitProfile[] profiles, int maxPoints, int battlefieldIndex) {
+            this.profiles = profiles;
+            this.maxPoints = maxPoints;
+            this.battlefieldIndex = battlefieldIndex;
+            this.hash = 31 * (31 * Arrays.hashCode(profiles) + maxPoints) + battlefieldIndex;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof BattlefieldKey)) {
+                return false;
+            }
+            BattlefieldKey key = (BattlefieldKey) other;
+            return hash == key.hash && maxPoints == key.maxPoints && battlefieldIndex == key.battlefieldIndex
+                && Arrays.equals(profiles, key.profiles);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
+
+
+/**
+ *  Class represents a battlefield that sets its size, number of objectives, and combat multipliers.
+ */
+class Battlefield {
+    
+    // Number of possible values of each battlefield condition.
+    static final int CONDITIONS = 11;
+    
+    int size;
+    int objectives;
+    String sizeClass;
+    double rangeMultiplier;
+    double meleeMultiplier;
+    double speedMultiplier;
+    double unitForceMultiplier;
+
+    public Battlefield(int size, int objectives) {
+        setBattlefieldVars(size, objectives);
+        setMultipliers();
+    }
+    
+    // Ensures battlefield conditions are between 0 and 10 and classifies its size.
+    private void setBattlefieldVars(int size, int objectives) {
+        
+        if (size < 0) {
+            this.size = 0;
+        } else if (size > 10) {
+            this.size = 10;
+        } else {
+            this.size = size;
+        }
+
+        if (objectives < 0) {
+            this.objectives = 0;
+        } else if (objectives > 10) {
+            this.objectives = 10;
+        } else {
+            this.objectives = objectives;
+        }
+
+        if (size <= 3) {
+            this.sizeClass = "Small";
+        } else if (size >= 7) {
+            this.sizeClass = "Large";
+        } else {
+            this.sizeClass = "Medium";
+        }
+    }
+
+    // Sets combat multipliers based on battlefield conditions.
+    private void setMultipliers() {
+        
+        // Adjusts how range and melee combat are weighted, with a smaller battlefield
+        // benefiting melee, and a larger battlefield benefiting range.
+        if (size < 5) {
+            meleeMultiplier = 1.0 + 0.1 * (5 - size);
+            rangeMultiplier = 1.0 - 0.1 * (5 - size);
+        } else if (size > 5) {
+            rangeMultiplier = 1.0 + 0.1 * (size - 5);
+            meleeMultiplier = 1.0 - 0.1 * (size - 5);
+        } else {
+            rangeMultiplier = 1.0;
+            meleeMultiplier = 1.0;
+        }
+
+        // Adjusts how speed and the number of units is weighted, with a greater
+        // number of objectives leading to heavier multipliers.
+        speedMultiplier = 1.0 + 0.05 * objectives;
+        unitForceMultiplier = 1.0 + 0.01 * objectives;
+    }
+    
+    // Returns a unique index in [0, CONDITIONS * CONDITIONS) for the battlefield's size and objectives.
+    public int index() {
+        return size * CONDITIONS + objectives;
+    }
+    
+    // Prints the size of battlefield and objectives in an orgainized format.
+    @Override
+    public String toString() {
+        // [Size: Medium - 5, Objectives: 5]
+        return "[Size: " + sizeClass + " - " + size + ", Objectives: " + objectives + "]";
+    }
+}
+ 
+ 
+/*
+ * Class to represent a unit in battle sustaining damage in combat.
+ */
+class BattleUnit {
+    Unit unit;
+    double health;
+
+    public BattleUnit (Unit unit) {
+        this.unit = unit;
+        this.health = unit.profile().effectiveness;
+    }
+
+    public boolean isDead() {
+        return health <= 0;
+    }
+
+    @Override
+    public String toString() {
+        return unit.name + " [Health: " + health + "]";
+    }
+}
+
+
+/**
+ *  Class that simulates unit combat.
+ */
+class UnitCombat {
+    
+    // Simulate combat between two units at a given distance.
+    public static String Combat(Unit A, Unit B, int distance) {
+        
+        switch (resolve(A, B, distance)) {
+            case A_WINS:
+                return A.name;
+            case B_WINS:
+                return B.name;
+            default:
+                return "Draw";
+        }
+    }
+
+    // Simulate combat between two units at a given distance and returns which side won, which unlike
+    // comparing names stays correct when both units share a name.
+    public static CombatResult resolve(Unit A, Unit B, int distance) {
+        
+        Metrics.recordCombat();
+
+        // Compares the effectiveness based on how distance affects shooting vs close combat, assuming shooting
+        // combat at a distance and close combat at short distance.
+        return CombatResult.compare(A.profile().combatEffectiveness(distance), B.profile().combatEffectiveness(distance));
+    }
+}
+
+
+/**
+ *  Enum representing the result of combat between unit A and unit B.
+ */
+enum CombatResult {
+    A_WINS,
+    B_WINS,
+    DRAW;
+
+    // Returns the result of comparing the combat effectiveness of unit A against unit B.
+    static CombatResult compare(int effectivenessA, int effectivenessB) {
+        if (effectivenessA > effectivenessB) {
+            return A_WINS;
+        } else if (effectivenessB > effectivenessA) {
+            return B_WINS;
+        } else {
+            return DRAW;
+        }
+    }
+}
+ 
+ 
+/**
+ *  Enum representing the outcome of a battle between two armies.
+ */
+enum BattleOutcome {
+    ARMY_A_WINS("Army A wins!"),
+    ARMY_B_WINS("Army B wins!"),
+    DRAW("It's a draw!");
+
+    // Message displayed when reporting the outcome.
+    final String message;
+
+    BattleOutcome(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return message;
+    }
+}
+
+
+/**
+ *  Class that simulates a battle between two armies.
+ */
+class BattleSimulator {
+    
+    // Generates a random index used in selecting a random unit.
+    private static BattleUnit getRandomUnit(List<BattleUnit> army, RandomGenerator random) {
+        int index = random.nextInt(army.size());
+        return army.get(index);
+    }
+    
+    // Checks if every remaining unit on both sides has the same effectiveness, in which case no
+    // combat can deal damage.
+    private static boolean isStalemate(List<BattleUnit> armyA, List<BattleUnit> armyB) {
+        if (armyA.isEmpty() || armyB.isEmpty()) {
+            return false;
+        }
+        int effectiveness = armyA.get(0).unit.profile().effectiveness;
+        for (BattleUnit battleUnit : armyA) {
+            if (battleUnit.unit.profile().effectiveness != effectiveness) {
+                return false;
+            }
+        }
+        for (BattleUnit battleUnit : armyB) {
+            if (battleUnit.unit.profile().effectiveness != effectiveness) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // Calculates an army's effectiveness based on battlefield conditions.
+    private static int getBattleEffectiveness(List<BattleUnit> army, Battlefield battlefield) {
+        double totalBattleEffectiveness = 0.0;
+
+        // Adds each unit's precomputed effectiveness with the battlefield's combat multipliers applied to the total.
+        for (BattleUnit battleUnit : army) {
+            totalBattleEffectiveness += battleUnit.unit.profile().battlefieldScore(battlefield);
+        }
+
+        // Applies a force multiplier and returns the army's battlefield effectiveness.
+        return (int) (totalBattleEffectiveness * (battlefield.unitForceMultiplier + 0.01 * army.size()) / 50);
+    }
+    
+    // Simulates a battle between two armies on a set battlefield.
+    public static String Battle(Army armyA, Army armyB, Battlefield battlefield) {
+        
+        return simulate(armyA, armyB, battlefield, ThreadLocalRandom.current()).message;
+    }
+
+    // Simulates a battle between two armies on a set battlefield, drawing unit picks and distances
+    // from the given generator so that seeded generators give reproducible battles.
+    public static BattleOutcome simulate(Army armyA, Army armyB, Battlefield battlefield, RandomGenerator random) {
+
+        BattleEvent event = new BattleEvent();
+        event.begin();
+
+        // Initializes BattleUnits for each army.
+        List<BattleUnit> battleArmyA = new ArrayList<>();
+        for (Unit unit : armyA.getSelectedUnits()) {
+            battleArmyA.add(new BattleUnit(unit));
+        }
+
+        List<BattleUnit> battleArmyB = new ArrayList<>();
+        for (Unit unit : armyB.getSelectedUnits()) {
+            battleArmyB.add(new BattleUnit(unit));
+        }
+
+        // Simulates combat between random units from each army until one or both armies are depleted.
+        int rounds = 0;
+        while (!battleArmyA.isEmpty() && !battleArmyB.isEmpty()) {
+            rounds++;
+            BattleUnit unitA = getRandomUnit(battleArmyA, random);
+            BattleUnit unitB = getRandomUnit(battleArmyB, random);
+
+            // Calculates the difference in effectiveness between units.
+            double difference = Math.abs(unitA.unit.profile().effectiveness - unitB.unit.profile().effectiveness);
+
+            // Generates a random distance between units in combat.
+            int distance = random.nextInt(11);
+
+            // Simulates combat, determines winner, and reduces unit health due to damage sustained in combat,
+            // equal to a fraction of the difference between unit effectiveness and based on combat result.
+            CombatResult result = UnitCombat.resolve(unitA.unit, unitB.unit, distance);
+            if (result == CombatResult.A_WINS) {
+                unitB.health -= 0.5 * difference;
+                unitA.health -= 0.2 * difference;
+            } else if (result == CombatResult.B_WINS) {
+                unitA.health -= 0.5 * difference;
+                unitB.health -= 0.2 * difference;
+            } else {
+                unitA.health -= 0.1 * difference;
+                unitB.health -= 0.1 * difference;
+            }
+
+            // Removes a unit from the battle once its health reaches zero.
+            if (unitA.isDead()) {
+                battleArmyA.remove(unitA);
+            }
+            if (unitB.isDead()) {
+                battleArmyB.remove(unitB);
+            }
+
+            // Ends the battle once no pairing can deal damage, which would otherwise loop forever.
+            if (difference == 0 && isStalemate(battleArmyA, battleArmyB)) {
+                break;
+            }
+        }
+
+        // Determines the winner, which is the army with remaining units, or the army with a higher
+        // battlefield effectiveness if no units remaining, or a draw if effectiveness is equal. 
+        BattleOutcome outcome;
+        if (!battleArmyA.isEmpty() && battleArmyB.isEmpty()) {
+            outcome = BattleOutcome.ARMY_A_WINS;
+        } else if (!battleArmyB.isEmpty() && battleArmyA.isEmpty()) {
+            outcome = BattleOutcome.ARMY_B_WINS;
+        } else if (battleArmyB.isEmpty() && battleArmyA.isEmpty()) {
+            // No remaining units, calculates each army's effectiveness on the battlefield to determine the winner.
+            int effectivenessA = getBattleEffectiveness(battleArmyA, battlefield);
+            int effectivenessB = getBattleEffectiveness(battleArmyB, battlefield);
+            if (effectivenessA > effectivenessB) {
+                outcome = BattleOutcome.ARMY_A_WINS;
+            } else if (effectivenessB > effectivenessA) {
+                outcome = BattleOutcome.ARMY_B_WINS;
+            } else {
+                // Each army's effectiveness on the battlefield was equal, so it's a draw.
+                outcome = BattleOutcome.DRAW;
+            }
+        } else {
+            outcome = BattleOutcome.DRAW;
+        }
+
+        Metrics.recordBattle(event, rounds, armyA.getSelectedUnits().size() - battleArmyA.size(),
+                             armyB.getSelectedUnits().size() - battleArmyB.size(), outcome);
+        return outcome;
+    }
+}
+ 
+
+// Tests the functionality of the program and algorithm.
+public class Main {
+    
+    public static void main(String[] args) {
+        Codex codex = new Codex();
+            
+        Army armyA = new Army();
+        Army armyB = new Army();
+        
+        // Get list of units from codex.
+        List<Unit> units = codex.getUnits();
+        
+        // Randomly select 6 units for each army without overlapping.
+        Set<Integer> selectedIndices = new HashSet<>();
+        Random random = new Random();
+
+        while (selectedIndices.size() < 12) {        
+           selectedIndices.add(random.nextInt(units.size()));
+           
+        }
+        
+        List<Integer> indicesList = new ArrayList<>(selectedIndices);
+        
+        for(int i = 0; i < 6; i++) {
+        
+           // Add units to Army A.
+           armyA.addUnit(units.get(indicesList.get(i)));
+           
+           // Add units to Army B.
+           armyB.addUnit(units.get(indicesList.get(i + 6)));
+           
+        }
+
+    
+        // Output both armies and their stats.
+        System.out.println("Army A:\n");
+        System.out.println(armyA);
+        System.out.println("Total Points: " + armyA.calculateTotalPoints());
+        System.out.println("Total Effectiveness: " + armyA.calculateTotalEffectiveness());
+        
+        System.out.println("\nArmy B:\n");
+        System.out.println(armyB);
+        System.out.println("Total Points: " + armyB.calculateTotalPoints());
+        System.out.println("Total Effectiveness: " + armyB.calculateTotalEffectiveness());
+        
+        System.out.println("\n-----------------------------------------------------------------------------------");
+    
+        
+        // Test the ArmyOptimizer for a maximum point budget.
+        int maxPointsA = 600;
+        int maxPointsB = 600;
+                
+        // Optimize Army A and Army B.
+        ArmyOptimizer optimizerA = new ArmyOptimizer(armyA, maxPointsA);
+        Army optimizedArmyA = optimizerA.optimize();
+
+        ArmyOptimizer optimizerB = new ArmyOptimizer(armyB, maxPointsB);
+        Army optimizedArmyB = optimizerB.optimize();
+        
+        // Display the optimized armies and their stats.
+        System.out.println("\nOptimized Army A (Max Points: " + maxPointsA + "):");
+        System.out.println(optimizedArmyA);
+        System.out.println("Total Points: " + optimizedArmyA.calculateTotalPoints());
+        System.out.println("Total Effectiveness: " + optimizedArmyA.calculateTotalEffectiveness());
+
+        System.out.println("\nOptimized Army B (Max Points: " + maxPointsB + "):");
+        System.out.println(optimizedArmyB);
+        System.out.println("Total Points: " + optimizedArmyB.calculateTotalPoints());
+        System.out.println("Total Effectiveness: " + optimizedArmyB.calculateTotalEffectiveness());
+
+        System.out.println("\n-----------------------------------------------------------------------------------");
+        
+
+        // Simulates battles between Army A and Army B on different battlefields, displaying battlefield conditions
+        // conditions and the result of the battle.
+        System.out.println("\nBattle Results:");
+
+        // Defines a list of battlefields for simulation.
+        List<Battlefield> battlefields = new ArrayList<>();
+        battlefields.add(new Battlefield(3, 3));
+        battlefields.add(new Battlefield(7, 4));
+        battlefields.add(new Battlefield(10, 10)); 
+        battlefields.add(new Battlefield(0, 0)); 
+        battlefields.add(new Battlefield(5, 5)); 
+        battlefields.add(new Battlefield(10, 0)); 
+        battlefields.add(new Battlefield(0, 10));
+        battlefields.add(new Battlefield((int) (Math.random() * 11), (int) (Math.random() * 11)));
+        battlefields.add(new Battlefield((int) (Math.random() * 11), (int) (Math.random() * 11)));
+        battlefields.add(new Battlefield((int) (Math.random() * 11), (int) (Math.random() * 11)));
+        
+
+        // Iterates through each battlefield and simulates the battle, then estimates each army's
+        // chance of winning on that battlefield over many simulated battles.
+        MonteCarloSimulator monteCarlo = new MonteCarloSimulator();
+        long trials = 100000;
+        long seed = random.nextLong();
+        
+        int battlefieldNumber = 1;
+        for (Battlefield battlefield : battlefields) {
+            System.out.println("\nBattlefield " + battlefieldNumber + " " + battlefield);
+            String battleResult = BattleSimulator.Battle(optimizedArmyA, optimizedArmyB, battlefield);
+            System.out.println(battleResult);
+            System.out.println(monteCarlo.simulate(optimizedArmyA, optimizedArmyB, battlefield, trials, seed));
+            battlefieldNumber++;
+        }
+    }
+}    
+ 
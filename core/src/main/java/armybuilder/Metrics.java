@@ -0,0 +1,453 @@
+package armybuilder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * Class that collects counters and histograms from the optimizer and the battle engines. Counters are
+ * LongAdders, which spread updates from different threads over separate cells, so parallel simulations
+ * don't contend on them. Collection is off unless it is switched on with setEnabled() or the
+ * armybuilder.metrics system property, and while it is off recording only reads a single flag.
+ *
+ * The optimizer and battle engines also emit the JFR events OptimizationEvent and BattleEvent, which are
+ * disabled by default and can be switched on in a recording's settings, for example with
+ * "jcmd <pid> JFR.start armybuilder.Battle#enabled=true". JFR events that aren't enabled are never
+ * committed, and the battle kernel only builds a BattleEvent while one is enabled in a running recording,
+ * so that its battles don't allocate.
+ */
+final class Metrics {
+
+    private static volatile boolean enabled = Boolean.getBoolean("armybuilder.metrics");
+
+    // Optimizer counters.
+    private static final LongAdder optimizations = new LongAdder();
+    private static final LongAdder cellsFilled = new LongAdder();
+    private static final LongAdder tableBytes = new LongAdder();
+    private static final Histogram optimizationNanos = new Histogram();
+
+    // Combat and battle counters.
+    private static final LongAdder combats = new LongAdder();
+    private static final LongAdder battles = new LongAdder();
+    private static final LongAdder armyAWins = new LongAdder();
+    private static final LongAdder armyBWins = new LongAdder();
+    private static final LongAdder draws = new LongAdder();
+    private static final LongAdder unitsKilledA = new LongAdder();
+    private static final LongAdder unitsKilledB = new LongAdder();
+    private static final LongAdder shortCircuitedBattles = new LongAdder();
+    private static final Histogram roundsPerBattle = new Histogram();
+
+    // JFR type of BattleEvent, which tells whether a running recording has the event enabled.
+    private static final EventType battleEventType = EventType.getEventType(BattleEvent.class);
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    // Switches collection of counters and histograms on or off.
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    // Returns the current time to measure an operation from, or zero if collection is off.
+    static long startTime() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    // Records a solved knapsack of the given number of items that filled the given number of DP cells
+    // and allocated tables of the given size.
+    static void recordOptimization(OptimizationEvent event, long startTime, int units, long cells, long bytes) {
+        if (enabled) {
+            optimizations.increment();
+            cellsFilled.add(cells);
+            tableBytes.add(bytes);
+            optimizationNanos.record(System.nanoTime() - startTime);
+        }
+        if (event.shouldCommit()) {
+            event.units = units;
+            event.cellsFilled = cells;
+            event.tableBytes = bytes;
+            event.commit();
+        }
+    }
+
+    // Records a single combat between two units.
+    static void recordCombat() {
+        if (enabled) {
+            combats.increment();
+        }
+    }
+
+    // Records a number of combats resolved together, such as the rounds of a kernel battle or a combat batch.
+    static void recordCombats(long count) {
+        if (enabled) {
+            combats.add(count);
+        }
+    }
+
+    // Starts a BattleEvent for a battle about to be fought, or returns null without allocating one if no
+    // running recording has the event enabled.
+    static BattleEvent beginBattle() {
+        if (!battleEventType.isEnabled()) {
+            return null;
+        }
+        BattleEvent event = new BattleEvent();
+        event.begin();
+        return event;
+    }
+
+    // Records a fought battle, with the number of rounds it took and the units each army lost. The event
+    // may be null if it was never started.
+    static void recordBattle(BattleEvent event, int rounds, int killedA, int killedB, BattleOutcome outcome) {
+        if (enabled) {
+            battles.increment();
+            unitsKilledA.add(killedA);
+            unitsKilledB.add(killedB);
+            roundsPerBattle.record(rounds);
+            switch (outcome) {
+                case ARMY_A_WINS:
+                    armyAWins.increment();
+                    break;
+                case ARMY_B_WINS:
+                    armyBWins.increment();
+                    break;
+                default:
+                    draws.increment();
+                    break;
+            }
+        }
+        if (event != null && event.shouldCommit()) {
+            event.rounds = rounds;
+            event.unitsKilledA = killedA;
+            event.unitsKilledB = killedB;
+            event.outcome = outcome.name();
+            event.commit();
+        }
+    }
+
+    // Records a battle whose decided outcome was returned without fighting it.
+    static void recordShortCircuitedBattle() {
+        if (enabled) {
+            shortCircuitedBattles.increment();
+        }
+    }
+
+    // Returns the values of every counter and histogram. Values recorded while the snapshot is taken
+    // may or may not be included.
+    public static MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(optimizations.sum(), cellsFilled.sum(), tableBytes.sum(),
+                                   optimizationNanos.snapshot(), combats.sum(), battles.sum(), armyAWins.sum(),
+                                   armyBWins.sum(), draws.sum(), unitsKilledA.sum(), unitsKilledB.sum(),
+                                   shortCircuitedBattles.sum(), roundsPerBattle.snapshot());
+    }
+
+    // Sets every counter and histogram back to zero.
+    public static void reset() {
+        for (LongAdder counter : new LongAdder[] {optimizations, cellsFilled, tableBytes, combats, battles, armyAWins,
+                                                  armyBWins, draws, unitsKilledA, unitsKilledB, shortCircuitedBattles}) {
+            counter.reset();
+        }
+        optimizationNanos.reset();
+        roundsPerBattle.reset();
+    }
+}
+
+
+/**
+ * Class to represent a histogram of non-negative values, counting values in power-of-two buckets. Bucket 0
+ * holds zero and bucket k holds values from 2^(k-1) up to 2^k - 1.
+ */
+final class Histogram {
+
+    static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    public Histogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    // Adds a value to the histogram, counting negative values as zero.
+    public void record(long value) {
+        value = Math.max(value, 0L);
+        buckets[Math.min(BUCKETS - Long.numberOfLeadingZeros(value), BUCKETS - 1)].increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return new HistogramSnapshot(counts, sum.sum(), max.get());
+    }
+
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        sum.reset();
+        max.reset();
+    }
+}
+
+
+/**
+ * Class to represent the counts of a histogram at one point in time.
+ */
+final class HistogramSnapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long sum, long max) {
+        this.counts = counts;
+        this.sum = sum;
+        this.max = max;
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        this.count = total;
+    }
+
+    // Retrieves and returns the number of values recorded.
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0.0 : (double) sum / count;
+    }
+
+    // Retrieves and returns the number of values in the given bucket.
+    public long getBucketCount(int bucket) {
+        return counts[bucket];
+    }
+
+    // Returns an upper bound on the given quantile, between 0 and 1, of the recorded values: the largest
+    // value of the bucket the quantile falls in, capped at the largest value recorded.
+    public long quantile(double quantile) {
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank && seen > 0) {
+                long bucketMax = bucket == 0 ? 0 : bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+                return Math.min(bucketMax, max);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1f p50<=%d p99<=%d max=%d",
+            count, getMean(), quantile(0.5), quantile(0.99), max);
+    }
+}
+
+
+/**
+ * Class to represent the values of every metric at one point in time.
+ */
+final class MetricsSnapshot {
+
+    private final long optimizations;
+    private final long cellsFilled;
+    private final long tableBytes;
+    private final HistogramSnapshot optimizationNanos;
+    private final long combats;
+    private final long battles;
+    private final long armyAWins;
+    private final long armyBWins;
+    private final long draws;
+    private final long unitsKilledA;
+    private final long unitsKilledB;
+    private final long shortCircuitedBattles;
+    private final HistogramSnapshot roundsPerBattle;
+
+    MetricsSnapshot(long optimizations, long cellsFilled, long tableBytes, HistogramSnapshot optimizationNanos,
+                    long combats, long battles, long armyAWins, long armyBWins, long draws, long unitsKilledA,
+                    long unitsKilledB, long shortCircuitedBattles, HistogramSnapshot roundsPerBattle) {
+        this.optimizations = optimizations;
+        this.cellsFilled = cellsFilled;
+        this.tableBytes = tableBytes;
+        this.optimizationNanos = optimizationNanos;
+        this.combats = combats;
+        this.battles = battles;
+        this.armyAWins = armyAWins;
+        this.armyBWins = armyBWins;
+        this.draws = draws;
+        this.unitsKilledA = unitsKilledA;
+        this.unitsKilledB = unitsKilledB;
+        this.shortCircuitedBattles = shortCircuitedBattles;
+        this.roundsPerBattle = roundsPerBattle;
+    }
+
+    public long getOptimizations() {
+        return optimizations;
+    }
+
+    public long getCellsFilled() {
+        return cellsFilled;
+    }
+
+    public long getTableBytes() {
+        return tableBytes;
+    }
+
+    public HistogramSnapshot getOptimizationNanos() {
+        return optimizationNanos;
+    }
+
+    public long getCombats() {
+        return combats;
+    }
+
+    public long getBattles() {
+        return battles;
+    }
+
+    public long getArmyAWins() {
+        return armyAWins;
+    }
+
+    public long getArmyBWins() {
+        return armyBWins;
+    }
+
+    public long getDraws() {
+        return draws;
+    }
+
+    public long getUnitsKilledA() {
+        return unitsKilledA;
+    }
+
+    public long getUnitsKilledB() {
+        return unitsKilledB;
+    }
+
+    public long getShortCircuitedBattles() {
+        return shortCircuitedBattles;
+    }
+
+    public HistogramSnapshot getRoundsPerBattle() {
+        return roundsPerBattle;
+    }
+
+    // Returns every counter and summary statistic by name, in a fixed order, for dumping to logs or other tools.
+    public Map<String, Long> asMap() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        values.put("optimizer.optimizations", optimizations);
+        values.put("optimizer.cellsFilled", cellsFilled);
+        values.put("optimizer.tableBytes", tableBytes);
+        values.put("optimizer.nanos.sum", optimizationNanos.getSum());
+        values.put("optimizer.nanos.p50", optimizationNanos.quantile(0.5));
+        values.put("optimizer.nanos.p99", optimizationNanos.quantile(0.99));
+        values.put("optimizer.nanos.max", optimizationNanos.getMax());
+        values.put("combat.combats", combats);
+        values.put("battle.battles", battles);
+        values.put("battle.armyAWins", armyAWins);
+        values.put("battle.armyBWins", armyBWins);
+        values.put("battle.draws", draws);
+        values.put("battle.unitsKilledA", unitsKilledA);
+        values.put("battle.unitsKilledB", unitsKilledB);
+        values.put("battle.shortCircuited", shortCircuitedBattles);
+        values.put("battle.rounds.sum", roundsPerBattle.getSum());
+        values.put("battle.rounds.p50", roundsPerBattle.quantile(0.5));
+        values.put("battle.rounds.p99", roundsPerBattle.quantile(0.99));
+        values.put("battle.rounds.max", roundsPerBattle.getMax());
+        return values;
+    }
+
+    // Prints every metric in an organized format.
+    @Override
+    public String toString() {
+        return String.format("Optimizer: %d optimizations, %d cells filled, %d table bytes, time (ns) %s%n"
+                             + "Combat: %d combats%n"
+                             + "Battles: %d fought (A: %d, B: %d, draws: %d), %d short-circuited, units killed A: %d, B: %d,"
+                             + " rounds %s%n",
+            optimizations, cellsFilled, tableBytes, optimizationNanos, combats, battles, armyAWins, armyBWins, draws,
+            shortCircuitedBattles, unitsKilledA, unitsKilledB, roundsPerBattle);
+    }
+}
+
+
+/**
+ * JFR event emitted for each solved knapsack, disabled by default.
+ */
+@Name("armybuilder.Optimization")
+@Label("Army Optimization")
+@Category("Army Builder")
+@Description("A knapsack solved by the army optimizer")
+@Enabled(false)
+@StackTrace(false)
+final class OptimizationEvent extends Event {
+
+    @Label("Units")
+    int units;
+
+    @Label("Cells Filled")
+    long cellsFilled;
+
+    @Label("Table Size")
+    @DataAmount
+    long tableBytes;
+}
+
+
+/**
+ * JFR event emitted for each fought battle, disabled by default.
+ */
+@Name("armybuilder.Battle")
+@Label("Battle")
+@Category("Army Builder")
+@Description("A battle fought by the battle engine")
+@Enabled(false)
+@StackTrace(false)
+final class BattleEvent extends Event {
+
+    @Label("Rounds")
+    int rounds;
+
+    @Label("Units Killed A")
+    int unitsKilledA;
+
+    @Label("Units Killed B")
+    int unitsKilledB;
+
+    @Label("Outcome")
+    String outcome;
+}
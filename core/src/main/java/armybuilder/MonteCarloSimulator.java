@@ -0,0 +1,262 @@
+package armybuilder;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+
+/**
+ *  Class that estimates win probabilities by simulating many battles between two armies in parallel.
+ */
+class MonteCarloSimulator {
+
+    // Number of trials a single task runs before it stops splitting its work.
+    static final int TRIALS_PER_TASK = 2048;
+
+    // Number of trials run between checks of whether the outcome is already decided.
+    static final int TRIALS_PER_CHECK = 16384;
+
+    // Pool that runs the trials.
+    private final ForkJoinPool pool;
+
+    // Initializes the simulator on the common fork-join pool, which uses all available cores.
+    public MonteCarloSimulator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    // Initializes the simulator on the given fork-join pool.
+    public MonteCarloSimulator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // Simulates the given number of battles and returns the aggregated outcome counts. Every task
+    // draws from its own generator split off the master seed, and tasks are split the same way
+    // regardless of scheduling, so the same seed always gives the same result. The battlefield is taken
+    // to match BattleSimulator.simulate, but as no outcome depends on it (see BattleKernel) the trials
+    // don't use it.
+    public MonteCarloResult simulate(Army armyA, Army armyB, Battlefield battlefield, long trials, long seed) {
+
+        if (trials <= 0) {
+            return new MonteCarloResult(0, 0, 0);
+        }
+        return pool.invoke(new TrialTask(armyA, armyB, 0, trials, new SplittableRandom(seed)));
+    }
+
+    // Simulates up to the given number of battles, stopping early once one outcome is known to occur in
+    // at least decisiveRate of battles, for example 0.99 to stop once some outcome happens in 99% of them.
+    // decisiveRate is a rate of battles, not a confidence level: an outcome counts as known once the lower
+    // bound of the 95% confidence interval of its rate reaches decisiveRate. If the armies are so mismatched
+    // that the outcome is certain, no battles are fought and every trial is counted for that outcome.
+    // Otherwise trials are run in batches and checked after each one. The result reports whether the run
+    // stopped early.
+    public MonteCarloResult simulate(Army armyA, Army armyB, Battlefield battlefield, long trials, long seed,
+                                     double decisiveRate) {
+
+        BattleKernel kernel = new BattleKernel();
+        kernel.load(armyA, armyB);
+        BattleOutcome decidedOutcome = kernel.getDecidedOutcome();
+        if (decidedOutcome != null && trials > 0) {
+            return MonteCarloResult.decided(decidedOutcome, trials);
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        MonteCarloResult result = new MonteCarloResult(0, 0, 0);
+        while (result.getTrials() < trials) {
+            long batch = Math.min(TRIALS_PER_CHECK, trials - result.getTrials());
+            result = result.merge(pool.invoke(new TrialTask(armyA, armyB, 0, batch, random.split())));
+            if (result.getTrials() < trials && result.isDecided(decisiveRate)) {
+                return result.shortCircuit();
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     *  Task that runs a range of trials, splitting it in half until it is small enough to run directly.
+     */
+    private static final class TrialTask extends RecursiveTask<MonteCarloResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final Army armyA;
+        private final Army armyB;
+        private final long from;
+        private final long to;
+        private final SplittableRandom random;
+
+        TrialTask(Army armyA, Army armyB, long from, long to, SplittableRandom random) {
+            this.armyA = armyA;
+            this.armyB = armyB;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected MonteCarloResult compute() {
+
+            if (to - from > TRIALS_PER_TASK) {
+                long middle = (from + to) >>> 1;
+
+                // The right half always receives the split generator and the left half keeps this one.
+                TrialTask right = new TrialTask(armyA, armyB, middle, to, random.split());
+                TrialTask left = new TrialTask(armyA, armyB, from, middle, random);
+                right.fork();
+                MonteCarloResult leftResult = left.compute();
+                return leftResult.merge(right.join());
+            }
+
+            // Loads both armies into a kernel once so that the trials themselves don't allocate.
+            BattleKernel kernel = new BattleKernel();
+            kernel.load(armyA, armyB);
+
+            long armyAWins = 0;
+            long armyBWins = 0;
+            long draws = 0;
+            for (long trial = from; trial < to; trial++) {
+                switch (kernel.run(random)) {
+                    case ARMY_A_WINS:
+                        armyAWins++;
+                        break;
+                    case ARMY_B_WINS:
+                        armyBWins++;
+                        break;
+                    default:
+                        draws++;
+                        break;
+                }
+            }
+            return new MonteCarloResult(armyAWins, armyBWins, draws);
+        }
+    }
+}
+
+
+/**
+ *  Class to represent the aggregated outcome counts of a Monte Carlo run.
+ */
+class MonteCarloResult {
+
+    // Z-score for a 95% confidence interval.
+    static final double Z_95 = 1.959964;
+
+    final long armyAWins;
+    final long armyBWins;
+    final long draws;
+
+    // Whether the run stopped before fighting every trial because the outcome was already decided.
+    final boolean shortCircuited;
+
+    public MonteCarloResult(long armyAWins, long armyBWins, long draws) {
+        this(armyAWins, armyBWins, draws, false);
+    }
+
+    public MonteCarloResult(long armyAWins, long armyBWins, long draws, boolean shortCircuited) {
+        this.armyAWins = armyAWins;
+        this.armyBWins = armyBWins;
+        this.draws = draws;
+        this.shortCircuited = shortCircuited;
+    }
+
+    // Returns a result counting every trial for an outcome that is certain.
+    public static MonteCarloResult decided(BattleOutcome outcome, long trials) {
+        return new MonteCarloResult(outcome == BattleOutcome.ARMY_A_WINS ? trials : 0,
+                                    outcome == BattleOutcome.ARMY_B_WINS ? trials : 0,
+                                    outcome == BattleOutcome.DRAW ? trials : 0, true);
+    }
+
+    // Combines the counts of this result with another.
+    public MonteCarloResult merge(MonteCarloResult other) {
+        return new MonteCarloResult(armyAWins + other.armyAWins, armyBWins + other.armyBWins, draws + other.draws,
+                                    shortCircuited || other.shortCircuited);
+    }
+
+    // Returns a copy of this result marked as having stopped early.
+    public MonteCarloResult shortCircuit() {
+        return new MonteCarloResult(armyAWins, armyBWins, draws, true);
+    }
+
+    // Checks if the lower bound of the 95% confidence interval of any outcome's rate reaches the given rate.
+    public boolean isDecided(double decisiveRate) {
+        return armyAWinInterval().lower >= decisiveRate || armyBWinInterval().lower >= decisiveRate
+            || drawInterval().lower >= decisiveRate;
+    }
+
+    // Retrieves and returns the total number of trials.
+    public long getTrials() {
+        return armyAWins + armyBWins + draws;
+    }
+
+    public double armyAWinRate() {
+        return rate(armyAWins);
+    }
+
+    public double armyBWinRate() {
+        return rate(armyBWins);
+    }
+
+    public double drawRate() {
+        return rate(draws);
+    }
+
+    // Returns the 95% confidence interval of Army A's win rate.
+    public ConfidenceInterval armyAWinInterval() {
+        return ConfidenceInterval.wilson(armyAWins, getTrials(), Z_95);
+    }
+
+    // Returns the 95% confidence interval of Army B's win rate.
+    public ConfidenceInterval armyBWinInterval() {
+        return ConfidenceInterval.wilson(armyBWins, getTrials(), Z_95);
+    }
+
+    // Returns the 95% confidence interval of the draw rate.
+    public ConfidenceInterval drawInterval() {
+        return ConfidenceInterval.wilson(draws, getTrials(), Z_95);
+    }
+
+    private double rate(long count) {
+        long trials = getTrials();
+        return trials == 0 ? 0.0 : (double) count / trials;
+    }
+
+    // Prints the win, loss and draw rates in an organized format.
+    @Override
+    public String toString() {
+        return String.format("Army A: %.2f%% %s, Army B: %.2f%% %s, Draws: %.2f%% %s (%d trials%s)",
+            100 * armyAWinRate(), armyAWinInterval(), 100 * armyBWinRate(), armyBWinInterval(),
+            100 * drawRate(), drawInterval(), getTrials(), shortCircuited ? ", short-circuited" : "");
+    }
+}
+
+
+/**
+ *  Class to represent a confidence interval around an estimated proportion.
+ */
+class ConfidenceInterval {
+    final double lower;
+    final double upper;
+
+    public ConfidenceInterval(double lower, double upper) {
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    // Computes the Wilson score interval, which stays within [0, 1] even for rates near 0% or 100%.
+    public static ConfidenceInterval wilson(long successes, long trials, double z) {
+
+        if (trials == 0) {
+            return new ConfidenceInterval(0.0, 1.0);
+        }
+        double p = (double) successes / trials;
+        double z2 = z * z;
+        double denominator = 1.0 + z2 / trials;
+        double centre = (p + z2 / (2.0 * trials)) / denominator;
+        double margin = z * Math.sqrt(p * (1.0 - p) / trials + z2 / (4.0 * trials * (double) trials)) / denominator;
+        return new ConfidenceInterval(Math.max(0.0, centre - margin), Math.min(1.0, centre + margin));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%.2f%%, %.2f%%]", 100 * lower, 100 * upper);
+    }
+}
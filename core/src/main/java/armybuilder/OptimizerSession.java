@@ -0,0 +1,228 @@
+package armybuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Class to optimize an army interactively. The session keeps the dynamic programming rows between
+ * calls, so changing the budget or the available units only computes the parts of the table that
+ * changed instead of rebuilding it from scratch.
+ *
+ * Two sets of rows are kept: prefix row i holds the best values using the first i units, and suffix
+ * row i holds the best values using units i onwards. Raising the budget extends the existing rows with
+ * the new columns, adding a unit computes one more prefix row, and removing a unit combines the prefix
+ * rows before it with the suffix rows after it. Rows made stale by a change are rebuilt only when needed.
+ */
+class OptimizerSession {
+
+    // Units available to the army.
+    private final List<Unit> units = new ArrayList<>();
+
+    // Point budget of the army, and the largest budget the rows have been computed for.
+    private int maxPoints;
+    private int capacity;
+
+    // Prefix rows 0 through validPrefix and suffix rows validSuffix through units.size() are up to date.
+    private final List<int[]> prefix = new ArrayList<>();
+    private final List<int[]> suffix = new ArrayList<>();
+    private int validPrefix;
+    private int validSuffix;
+
+    // Initializes the session with the given units and budget.
+    public OptimizerSession(List<Unit> units, int maxPoints) {
+        this.maxPoints = maxPoints;
+        this.capacity = Math.max(maxPoints, 0);
+
+        prefix.add(new int[capacity + 1]);
+        suffix.add(new int[capacity + 1]);
+        for (Unit unit : units) {
+            addUnit(unit);
+        }
+    }
+
+    // Retrieves and returns the units available to the army.
+    public List<Unit> getUnits() {
+        return Collections.unmodifiableList(units);
+    }
+
+    // Retrieves and returns the point budget of the army.
+    public int getMaxPoints() {
+        return maxPoints;
+    }
+
+    // Changes the point budget. Raising it above any earlier budget only computes the new columns.
+    public void setMaxPoints(int maxPoints) {
+        this.maxPoints = maxPoints;
+        if (maxPoints <= capacity) {
+            return;
+        }
+
+        int firstNewColumn = capacity + 1;
+        capacity = maxPoints;
+        int n = units.size();
+
+        // Extends every up-to-date row, in order, since each row depends on the one before it.
+        prefix.set(0, Arrays.copyOf(prefix.get(0), capacity + 1));
+        for (int i = 1; i <= validPrefix; i++) {
+            prefix.set(i, Arrays.copyOf(prefix.get(i), capacity + 1));
+            fillRow(prefix.get(i - 1), prefix.get(i), units.get(i - 1), firstNewColumn);
+        }
+        suffix.set(n, Arrays.copyOf(suffix.get(n), capacity + 1));
+        for (int i = n - 1; i >= validSuffix; i--) {
+            suffix.set(i, Arrays.copyOf(suffix.get(i), capacity + 1));
+            fillRow(suffix.get(i + 1), suffix.get(i), units.get(i), firstNewColumn);
+        }
+    }
+
+    // Adds a unit to the available units, computing a single new prefix row.
+    public void addUnit(Unit unit) {
+        units.add(unit);
+        int n = units.size();
+
+        prefix.add(new int[capacity + 1]);
+        if (validPrefix == n - 1) {
+            fillRow(prefix.get(n - 1), prefix.get(n), unit, 0);
+            validPrefix = n;
+        }
+
+        // Every existing suffix row now lacks the new unit, so only the empty last row is up to date.
+        suffix.add(new int[capacity + 1]);
+        validSuffix = n;
+    }
+
+    // Removes the unit at the given index from the available units.
+    public void removeUnit(int index) {
+        units.remove(index);
+
+        // Prefix rows after the removed unit included it, while suffix rows after it are unaffected
+        // and simply move down by one.
+        prefix.remove(prefix.size() - 1);
+        validPrefix = Math.min(validPrefix, index);
+        suffix.remove(index);
+        validSuffix = Math.max(validSuffix - 1, index);
+    }
+
+    // Builds the optimal army for the current units and budget.
+    public Army getOptimalArmy() {
+        if (maxPoints < 0) {
+            return new Army();
+        }
+
+        // Combines the prefix and suffix rows where they meet, extending the prefix rows if they don't.
+        ensurePrefix(Math.min(validSuffix, units.size()));
+        return combine(validPrefix, validPrefix, units.size());
+    }
+
+    // Builds the optimal army if the given unit were added, without changing the session.
+    public Army previewAddUnit(Unit unit) {
+        if (maxPoints < 0) {
+            return new Army();
+        }
+
+        int n = units.size();
+        ensurePrefix(n);
+        int[] row = new int[capacity + 1];
+        fillRow(prefix.get(n), row, unit, 0);
+
+        // Checks whether the new unit is part of the best army, then backtracks through the existing rows.
+        Army optimalArmy = new Army();
+        int points = maxPoints;
+        if (points > 0 && row[points] != prefix.get(n)[points]) {
+            optimalArmy.addUnit(unit);
+            points -= unit.pointCost;
+        }
+        backtrackPrefix(optimalArmy, n, points);
+        return optimalArmy;
+    }
+
+    // Builds the optimal army if the unit at the given index were removed, without changing the session.
+    public Army previewRemoveUnit(int index) {
+        if (maxPoints < 0) {
+            return new Army();
+        }
+
+        ensurePrefix(index);
+        ensureSuffix(index + 1);
+        return combine(index, index + 1, units.size());
+    }
+
+    // Builds the optimal army from the units before prefixRow and from suffixRow onwards, choosing the
+    // split of the budget between the two parts that gives the highest total value.
+    private Army combine(int prefixRow, int suffixRow, int n) {
+        int[] before = prefix.get(prefixRow);
+        int[] after = suffix.get(suffixRow);
+
+        int bestSplit = maxPoints;
+        int bestValue = before[maxPoints] + after[0];
+        for (int points = maxPoints - 1; points >= 0; points--) {
+            int value = before[points] + after[maxPoints - points];
+            if (value > bestValue) {
+                bestValue = value;
+                bestSplit = points;
+            }
+        }
+
+        Army optimalArmy = new Army();
+        backtrackPrefix(optimalArmy, prefixRow, bestSplit);
+
+        // Backtrack through the suffix rows to find the rest of the unit composition.
+        int points = maxPoints - bestSplit;
+        for (int i = suffixRow; i < n && points > 0; i++) {
+            if (suffix.get(i)[points] != suffix.get(i + 1)[points]) {
+                Unit unit = units.get(i);
+                optimalArmy.addUnit(unit);
+                points -= unit.pointCost;
+            }
+        }
+        return optimalArmy;
+    }
+
+    // Backtracks through the prefix rows to find the optimal unit composition, as ArmyOptimizer does.
+    private void backtrackPrefix(Army optimalArmy, int row, int points) {
+        for (int i = row; i > 0 && points > 0; i--) {
+            if (prefix.get(i)[points] != prefix.get(i - 1)[points]) {
+                Unit unit = units.get(i - 1);
+                optimalArmy.addUnit(unit);
+                points -= unit.pointCost;
+            }
+        }
+    }
+
+    // Recomputes stale prefix rows up to the given row.
+    private void ensurePrefix(int row) {
+        for (int i = validPrefix + 1; i <= row; i++) {
+            if (prefix.get(i).length != capacity + 1) {
+                prefix.set(i, new int[capacity + 1]);
+            }
+            fillRow(prefix.get(i - 1), prefix.get(i), units.get(i - 1), 0);
+        }
+        validPrefix = Math.max(validPrefix, row);
+    }
+
+    // Recomputes stale suffix rows down to the given row.
+    private void ensureSuffix(int row) {
+        for (int i = validSuffix - 1; i >= row; i--) {
+            if (suffix.get(i).length != capacity + 1) {
+                suffix.set(i, new int[capacity + 1]);
+            }
+            fillRow(suffix.get(i + 1), suffix.get(i), units.get(i), 0);
+        }
+        validSuffix = Math.min(validSuffix, row);
+    }
+
+    // Fills the columns of a row from the given column onwards with the best values with or without the unit.
+    private void fillRow(int[] previous, int[] row, Unit unit, int fromColumn) {
+        int cost = unit.pointCost;
+        int effectiveness = unit.profile().effectiveness;
+        for (int points = fromColumn; points <= capacity; points++) {
+            if (cost <= points) {
+                row[points] = Math.max(previous[points], previous[points - cost] + effectiveness);
+            } else {
+                row[points] = previous[points];
+            }
+        }
+    }
+}
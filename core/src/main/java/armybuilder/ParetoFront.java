@@ -0,0 +1,114 @@
+package armybuilder;
+
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Class to represent the Pareto front of army point cost against effectiveness. Each point on the front
+ * is the cheapest budget that reaches a higher total unit effectiveness than every smaller budget. The
+ * armies are built from the solved knapsack only when a caller asks for them.
+ */
+class ParetoFront {
+
+    private final List<Unit> units;
+    private final KnapsackSolution solution;
+
+    // Point cost and total unit effectiveness of each point on the front, in increasing order.
+    private final int[] points;
+    private final int[] effectiveness;
+
+    // Armies built so far, indexed like the points on the front.
+    private final Army[] armies;
+
+    ParetoFront(List<Unit> units, KnapsackSolution solution) {
+        this.units = units;
+        this.solution = solution;
+
+        // Collects every column whose best value improves on the column before it.
+        int divisor = solution.getDivisor();
+        int columns = solution.getMaxPoints() < 0 ? 0 : solution.getMaxPoints() / divisor + 1;
+        int[] frontPoints = new int[columns];
+        int[] frontEffectiveness = new int[columns];
+        int size = 0;
+        int previous = 0;
+        for (int column = 0; column < columns; column++) {
+            int value = solution.bestValue(column * divisor);
+            if (column == 0 || value > previous) {
+                frontPoints[size] = column * divisor;
+                frontEffectiveness[size] = value;
+                size++;
+                previous = value;
+            }
+        }
+
+        this.points = Arrays.copyOf(frontPoints, size);
+        this.effectiveness = Arrays.copyOf(frontEffectiveness, size);
+        this.armies = new Army[size];
+    }
+
+    // Retrieves and returns the number of points on the front.
+    public int size() {
+        return points.length;
+    }
+
+    // Retrieves and returns the point cost of the army at the given position on the front.
+    public int getPoints(int index) {
+        return points[index];
+    }
+
+    // Retrieves and returns the total unit effectiveness of the army at the given position on the front.
+    public int getEffectiveness(int index) {
+        return effectiveness[index];
+    }
+
+    // Retrieves and returns the army at the given position on the front, building it on first use.
+    public Army getArmy(int index) {
+        Army cachedArmy;
+        synchronized (this) {
+            if (armies[index] == null) {
+                armies[index] = buildArmy(points[index]);
+            }
+            cachedArmy = armies[index];
+        }
+
+        // Returns a copy so that callers adding units don't change the cached army.
+        Army army = new Army();
+        for (Unit unit : cachedArmy.getSelectedUnits()) {
+            army.addUnit(unit);
+        }
+        return army;
+    }
+
+    // Builds the optimal army for any budget up to the front's maximum, which is the same army
+    // ArmyOptimizer.buildOptimalArmy would build for that budget.
+    public Army getArmyForBudget(int budget) {
+        return buildArmy(budget);
+    }
+
+    // Retrieves and returns the best total unit effectiveness for any budget up to the front's maximum.
+    public int getEffectivenessForBudget(int budget) {
+        return solution.bestValue(budget);
+    }
+
+    private Army buildArmy(int budget) {
+        boolean[] selected = solution.select(budget);
+        Army army = new Army();
+        for (int i = selected.length - 1; i >= 0; i--) {
+            if (selected[i]) {
+                army.addUnit(units.get(i));
+            }
+        }
+        return army;
+    }
+
+    // Prints the point cost and effectiveness of each point on the front in an organized format.
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Pareto Front:\n");
+        for (int i = 0; i < points.length; i++) {
+            sb.append("Points: ").append(points[i]).append(", Effectiveness: ").append(effectiveness[i]).append("\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,29 @@
+package armybuilder;
+
+
+/**
+ *  Class to derive the seeds of separate generators for numbered pieces of a parallel run, such as the
+ *  matchups of a tournament, the chunks of an aggregation or the armies of a search. Each piece is seeded
+ *  from the run's seed and its own number, so its battles don't depend on which thread fights it or when.
+ */
+final class Seeds {
+
+    // Odd constant close to 2^64 divided by the golden ratio, which spreads consecutive numbers apart.
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private Seeds() {
+    }
+
+    // Returns the seed of the piece with the given number in a run with the given seed.
+    static long forIndex(long seed, long index) {
+        return mix(seed + index * GOLDEN_GAMMA);
+    }
+
+    // Scrambles the bits of a seed with the SplitMix64 finalizer, so that neighbouring seeds give unrelated
+    // generators.
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,321 @@
+package armybuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+
+/**
+ *  Class that runs a round-robin tournament, where every army in a pool fights every other army a
+ *  number of times. The matchups are split across a fork-join pool, each worker thread reuses one
+ *  BattleKernel, and partial standings can be reported while the tournament runs. A tournament can be
+ *  cancelled at any time, in which case it stops with the standings so far.
+ *
+ *  Each pairing is a single matchup rather than one per battlefield, as no battle outcome depends on the
+ *  battlefield (see BattleKernel), and fighting the same pairing on every battlefield would only repeat
+ *  identical trials.
+ */
+class Tournament {
+
+    // Number of battles a single task fights before it stops splitting its matchups.
+    static final int BATTLES_PER_TASK = 4096;
+
+    // Kernel reused by each worker thread across matchups.
+    private static final ThreadLocal<BattleKernel> kernels = ThreadLocal.withInitial(BattleKernel::new);
+
+    private final List<Army> armies;
+    private final int trialsPerMatchup;
+    private final long seed;
+
+    // Number of battles won and drawn by army i against army j, at index i * armies + j.
+    private final AtomicLongArray wins;
+    private final AtomicLongArray draws;
+
+    private final long totalMatchups;
+    private final AtomicLong completedMatchups = new AtomicLong();
+    private volatile boolean cancelled;
+
+    // Initializes a tournament between the given armies, fighting each pairing trialsPerMatchup times.
+    // The same seed always gives the same results.
+    public Tournament(List<Army> armies, int trialsPerMatchup, long seed) {
+        this.armies = new ArrayList<>(armies);
+        this.trialsPerMatchup = trialsPerMatchup;
+        this.seed = seed;
+
+        int n = armies.size();
+        this.wins = new AtomicLongArray(n * n);
+        this.draws = new AtomicLongArray(n * n);
+        this.totalMatchups = (long) n * (n - 1) / 2;
+    }
+
+    // Runs the tournament on the common fork-join pool and returns the final standings.
+    public TournamentStandings run() {
+        return run(ForkJoinPool.commonPool(), null, 0);
+    }
+
+    // Runs the tournament on the given pool and returns the final standings. If a listener is given,
+    // it receives the standings so far each time another reportInterval matchups have completed.
+    public TournamentStandings run(ForkJoinPool pool, Consumer<TournamentStandings> listener, long reportInterval) {
+        long matchupsPerTask = Math.max(1, BATTLES_PER_TASK / Math.max(1, trialsPerMatchup));
+        pool.invoke(new MatchupTask(0, totalMatchups, matchupsPerTask, listener, reportInterval));
+        return getStandings();
+    }
+
+    // Stops the tournament after the matchups currently being fought.
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Returns the standings of the matchups completed so far. Can be called while the tournament runs.
+    public TournamentStandings getStandings() {
+        int n = armies.size();
+        long[] winCounts = new long[n * n];
+        long[] drawCounts = new long[n * n];
+        for (int i = 0; i < winCounts.length; i++) {
+            winCounts[i] = wins.get(i);
+            drawCounts[i] = draws.get(i);
+        }
+        return new TournamentStandings(n, winCounts, drawCounts, completedMatchups.get(), totalMatchups);
+    }
+
+    // Fights every trial of a single matchup, identified by its index among all pairs of armies.
+    private void fightMatchup(long matchup) {
+
+        // Finds the pair of armies (i, j), with i < j, at the given index in row-major order.
+        int n = armies.size();
+        int i = 0;
+        long remaining = matchup;
+        while (remaining >= n - 1 - i) {
+            remaining -= n - 1 - i;
+            i++;
+        }
+        int j = i + 1 + (int) remaining;
+
+        BattleKernel kernel = kernels.get();
+        kernel.load(armies.get(i), armies.get(j));
+
+        // Seeds each matchup from its index, so results don't depend on which thread fights it.
+        SplittableRandom random = new SplittableRandom(Seeds.forIndex(seed, matchup));
+        long winsI = 0;
+        long winsJ = 0;
+        long drawCount = 0;
+        for (int trial = 0; trial < trialsPerMatchup; trial++) {
+            switch (kernel.run(random)) {
+                case ARMY_A_WINS:
+                    winsI++;
+                    break;
+                case ARMY_B_WINS:
+                    winsJ++;
+                    break;
+                default:
+                    drawCount++;
+                    break;
+            }
+        }
+
+        wins.addAndGet(i * n + j, winsI);
+        wins.addAndGet(j * n + i, winsJ);
+        draws.addAndGet(i * n + j, drawCount);
+        draws.addAndGet(j * n + i, drawCount);
+    }
+
+
+    /**
+     *  Task that fights a range of matchups, splitting it in half until it is small enough to fight directly.
+     */
+    private final class MatchupTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+        private final long matchupsPerTask;
+        private final Consumer<TournamentStandings> listener;
+        private final long reportInterval;
+
+        MatchupTask(long from, long to, long matchupsPerTask, Consumer<TournamentStandings> listener,
+                    long reportInterval) {
+            this.from = from;
+            this.to = to;
+            this.matchupsPerTask = matchupsPerTask;
+            this.listener = listener;
+            this.reportInterval = reportInterval;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancelled) {
+                return;
+            }
+
+            if (to - from > matchupsPerTask) {
+                long middle = (from + to) >>> 1;
+                invokeAll(new MatchupTask(from, middle, matchupsPerTask, listener, reportInterval),
+                          new MatchupTask(middle, to, matchupsPerTask, listener, reportInterval));
+                return;
+            }
+
+            for (long matchup = from; matchup < to && !cancelled; matchup++) {
+                fightMatchup(matchup);
+                long completed = completedMatchups.incrementAndGet();
+                if (listener != null && reportInterval > 0 && completed % reportInterval == 0) {
+                    listener.accept(getStandings());
+                }
+            }
+        }
+    }
+}
+
+
+/**
+ *  Class to represent the standings of a tournament, with each army's record and a rating fitted to
+ *  its results on the Elo scale.
+ */
+class TournamentStandings {
+
+    // Rating of an average army.
+    static final double BASE_RATING = 1500.0;
+
+    // Iterations used when fitting the ratings.
+    private static final int RATING_ITERATIONS = 100;
+
+    private final int armyCount;
+    private final long[] wins;
+    private final long[] losses;
+    private final long[] draws;
+    private final double[] ratings;
+    private final long completedMatchups;
+    private final long totalMatchups;
+
+    TournamentStandings(int armyCount, long[] pairWins, long[] pairDraws, long completedMatchups, long totalMatchups) {
+        this.armyCount = armyCount;
+        this.completedMatchups = completedMatchups;
+        this.totalMatchups = totalMatchups;
+        this.wins = new long[armyCount];
+        this.losses = new long[armyCount];
+        this.draws = new long[armyCount];
+        for (int i = 0; i < armyCount; i++) {
+            for (int j = 0; j < armyCount; j++) {
+                wins[i] += pairWins[i * armyCount + j];
+                losses[i] += pairWins[j * armyCount + i];
+                draws[i] += pairDraws[i * armyCount + j];
+            }
+        }
+        this.ratings = fitRatings(armyCount, pairWins, pairDraws);
+    }
+
+    // Fits Bradley-Terry strengths to the pairwise results, counting a draw as half a win for each side,
+    // and converts them to the Elo scale. Every pairing that was fought gets one extra virtual draw so an
+    // army without any wins still has a finite rating.
+    private static double[] fitRatings(int n, long[] pairWins, long[] pairDraws) {
+        double[] score = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                long games = pairWins[i * n + j] + pairWins[j * n + i] + pairDraws[i * n + j];
+                if (i != j && games > 0) {
+                    score[i * n + j] = pairWins[i * n + j] + 0.5 * pairDraws[i * n + j] + 0.5;
+                }
+            }
+        }
+
+        double[] strength = new double[n];
+        Arrays.fill(strength, 1.0);
+        for (int iteration = 0; iteration < RATING_ITERATIONS; iteration++) {
+            double[] next = new double[n];
+            double logSum = 0.0;
+            for (int i = 0; i < n; i++) {
+                double totalScore = 0.0;
+                double denominator = 0.0;
+                for (int j = 0; j < n; j++) {
+                    double games = score[i * n + j] + score[j * n + i];
+                    if (games > 0) {
+                        totalScore += score[i * n + j];
+                        denominator += games / (strength[i] + strength[j]);
+                    }
+                }
+                next[i] = denominator > 0 ? totalScore / denominator : 1.0;
+                logSum += Math.log(next[i]);
+            }
+
+            // Normalizes the strengths so that their geometric mean is one.
+            double scale = Math.exp(logSum / Math.max(n, 1));
+            for (int i = 0; i < n; i++) {
+                strength[i] = next[i] / scale;
+            }
+        }
+
+        double[] ratings = new double[n];
+        for (int i = 0; i < n; i++) {
+            ratings[i] = BASE_RATING + 400.0 * Math.log10(strength[i]);
+        }
+        return ratings;
+    }
+
+    public int getArmyCount() {
+        return armyCount;
+    }
+
+    public long getWins(int army) {
+        return wins[army];
+    }
+
+    public long getLosses(int army) {
+        return losses[army];
+    }
+
+    public long getDraws(int army) {
+        return draws[army];
+    }
+
+    // Retrieves and returns the fraction of battles the army won.
+    public double getWinRate(int army) {
+        long battles = wins[army] + losses[army] + draws[army];
+        return battles == 0 ? 0.0 : (double) wins[army] / battles;
+    }
+
+    public double getRating(int army) {
+        return ratings[army];
+    }
+
+    public long getCompletedMatchups() {
+        return completedMatchups;
+    }
+
+    public long getTotalMatchups() {
+        return totalMatchups;
+    }
+
+    public boolean isComplete() {
+        return completedMatchups == totalMatchups;
+    }
+
+    // Returns the indices of the armies from highest to lowest rating.
+    public int[] getRanking() {
+        return IntStream.range(0, armyCount).boxed()
+            .sorted((a, b) -> Double.compare(ratings[b], ratings[a]))
+            .mapToInt(Integer::intValue).toArray();
+    }
+
+    // Prints the standings in an organized format, from highest to lowest rating.
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format("Standings (%d of %d matchups):%n",
+            completedMatchups, totalMatchups));
+        int rank = 1;
+        for (int army : getRanking()) {
+            sb.append(String.format("%3d. Army %d [Rating: %.0f, Wins: %d, Losses: %d, Draws: %d, Win Rate: %.2f%%]%n",
+                rank++, army, ratings[army], wins[army], losses[army], draws[army], 100 * getWinRate(army)));
+        }
+        return sb.toString();
+    }
+}
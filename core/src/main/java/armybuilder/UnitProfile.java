@@ -0,0 +1,66 @@
+package armybuilder;
+
+/**
+ * Class to represent the precomputed combat stats of a unit. A profile is immutable and is built
+ * once from the unit's attributes, so the optimizer, combat and battle code can read the values
+ * instead of recomputing them on every call.
+ */
+final class UnitProfile {
+
+    // Every battlefield size and objective combination, indexed by Battlefield.index().
+    private static final Battlefield[] BATTLEFIELDS = new Battlefield[Battlefield.CONDITIONS * Battlefield.CONDITIONS];
+
+    static {
+        for (int size = 0; size < Battlefield.CONDITIONS; size++) {
+            for (int objectives = 0; objectives < Battlefield.CONDITIONS; objectives++) {
+                Battlefield battlefield = new Battlefield(size, objectives);
+                BATTLEFIELDS[battlefield.index()] = battlefield;
+            }
+        }
+    }
+
+    // Overall effectiveness of the unit, as returned by Unit.calculateEffectiveness().
+    final int effectiveness;
+
+    // Effectiveness of the unit in shooting and close combat, truncated as UnitCombat compares them.
+    final int shootingEffectiveness;
+    final int closeCombatEffectiveness;
+
+    // Damage of the unit weighted by its accuracy in shooting and close combat.
+    final double rangeScore;
+    final double meleeScore;
+
+    // Wounds of the unit weighted by its armor.
+    final double stamina;
+
+    // Battle effectiveness of the unit on every battlefield, indexed by Battlefield.index().
+    private final double[] battlefieldScores;
+
+    public UnitProfile(Unit unit) {
+        this.effectiveness = unit.calculateEffectiveness();
+        this.shootingEffectiveness = (int) (effectiveness * unit.shootingAccuracy);
+        this.closeCombatEffectiveness = (int) (effectiveness * unit.closeCombatAccuracy);
+        this.rangeScore = unit.shootingDamage * unit.shootingAccuracy;
+        this.meleeScore = unit.closeCombatDamage * unit.closeCombatAccuracy;
+        this.stamina = unit.wounds * unit.armor;
+
+        this.battlefieldScores = new double[BATTLEFIELDS.length];
+        for (int i = 0; i < BATTLEFIELDS.length; i++) {
+            Battlefield battlefield = BATTLEFIELDS[i];
+            double range = rangeScore * battlefield.rangeMultiplier;
+            double melee = meleeScore * battlefield.meleeMultiplier;
+            double agility = unit.speed * battlefield.speedMultiplier;
+            battlefieldScores[i] = (range + melee) * (agility + stamina);
+        }
+    }
+
+    // Returns the effectiveness of the unit in combat at the given distance.
+    public int combatEffectiveness(int distance) {
+        return distance > 5 ? shootingEffectiveness : closeCombatEffectiveness;
+    }
+
+    // Returns the battle effectiveness of the unit on the given battlefield, before the army's force multiplier.
+    public double battlefieldScore(Battlefield battlefield) {
+        return battlefieldScores[battlefield.index()];
+    }
+}
@@ -0,0 +1,75 @@
+package armybuilder;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * Class that resolves a CombatBatch with the JDK Vector API. It is only loaded when the jdk.incubator.vector
+ * module is present, so nothing else may refer to it except through CombatBatch.resolve().
+ */
+final class VectorCombat {
+
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    // Ints with as many lanes as DOUBLES, so that they convert to doubles lane by lane.
+    private static final VectorSpecies<Integer> DOUBLE_INTS =
+        VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+
+    private static final int A_WINS = CombatResult.A_WINS.ordinal();
+    private static final int B_WINS = CombatResult.B_WINS.ordinal();
+    private static final int DRAW = CombatResult.DRAW.ordinal();
+
+    private VectorCombat() {
+    }
+
+    // Resolves the first count combats of the batch, with the same results as CombatBatch.resolveScalar().
+    static void resolve(CombatBatch batch, int count) {
+
+        // Picks the shooting or close combat effectiveness of each unit by distance, compares them and
+        // takes the difference in effectiveness. Combats past the last whole vector are resolved by the
+        // scalar loop.
+        int intBound = INTS.loopBound(count);
+        for (int i = 0; i < intBound; i += INTS.length()) {
+            IntVector distance = IntVector.fromArray(INTS, batch.distances, i);
+            VectorMask<Integer> shooting = distance.compare(VectorOperators.GT, 5);
+            IntVector combatA = IntVector.fromArray(INTS, batch.meleeA, i)
+                .blend(IntVector.fromArray(INTS, batch.shootingA, i), shooting);
+            IntVector combatB = IntVector.fromArray(INTS, batch.meleeB, i)
+                .blend(IntVector.fromArray(INTS, batch.shootingB, i), shooting);
+
+            IntVector.broadcast(INTS, DRAW)
+                .blend(A_WINS, combatA.compare(VectorOperators.GT, combatB))
+                .blend(B_WINS, combatB.compare(VectorOperators.GT, combatA))
+                .intoArray(batch.results, i);
+
+            IntVector.fromArray(INTS, batch.effectivenessA, i)
+                .sub(IntVector.fromArray(INTS, batch.effectivenessB, i))
+                .lanewise(VectorOperators.ABS)
+                .intoArray(batch.differences, i);
+        }
+        batch.resolveScalar(intBound, count);
+
+        // Scales each difference by the damage fraction of each side's result. Doubles take twice the bits
+        // of ints, so this loop may stop short of intBound, and the scalar loop resolves the rest again.
+        DoubleVector draw = DoubleVector.broadcast(DOUBLES, 0.1);
+        int doubleBound = DOUBLES.loopBound(intBound);
+        for (int i = 0; i < doubleBound; i += DOUBLES.length()) {
+            DoubleVector result = (DoubleVector) IntVector.fromArray(DOUBLE_INTS, batch.results, i)
+                .convertShape(VectorOperators.I2D, DOUBLES, 0);
+            VectorMask<Double> aWins = result.compare(VectorOperators.EQ, A_WINS);
+            VectorMask<Double> bWins = result.compare(VectorOperators.EQ, B_WINS);
+            DoubleVector difference = (DoubleVector) IntVector.fromArray(DOUBLE_INTS, batch.differences, i)
+                .convertShape(VectorOperators.I2D, DOUBLES, 0);
+
+            draw.blend(0.2, aWins).blend(0.5, bWins).mul(difference).intoArray(batch.damageA, i);
+            draw.blend(0.5, aWins).blend(0.2, bWins).mul(difference).intoArray(batch.damageB, i);
+        }
+        batch.resolveScalar(doubleBound, intBound);
+    }
+}
@@ -0,0 +1,180 @@
+package armybuilder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Class to test that the compact, parallel and rule-following optimizers build the same armies as
+ * buildOptimalArmy, and that the rule-following optimizer finds the best army a brute force search finds.
+ */
+class ArmyOptimizerTest {
+
+    private static final String[] ROLES = {"infantry", "vehicle", "hero"};
+
+    @Test
+    void compactBuildsTheSameArmy() {
+        SplittableRandom random = new SplittableRandom(4);
+        for (int round = 0; round < 200; round++) {
+            List<Unit> roster = randomRoster(random, random.nextInt(0, 25), 300);
+            int maxPoints = random.nextInt(-1, 3000);
+            assertSameUnits(ArmyOptimizer.buildOptimalArmy(roster, maxPoints),
+                            ArmyOptimizer.buildOptimalArmyCompact(roster, maxPoints));
+        }
+    }
+
+    @Test
+    void parallelBuildsTheSameArmy() {
+        SplittableRandom random = new SplittableRandom(16);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int round = 0; round < 10; round++) {
+
+                // Budgets past the threshold, so the table is filled by splitting it across the pool.
+                List<Unit> roster = randomRoster(random, random.nextInt(1, 30), 20_000);
+                int maxPoints = KnapsackSolution.PARALLEL_THRESHOLD + random.nextInt(0, 50_000);
+                assertSameUnits(ArmyOptimizer.buildOptimalArmy(roster, maxPoints),
+                                ArmyOptimizer.buildOptimalArmyParallel(roster, maxPoints, pool));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void constrainedWithoutRulesMatchesBuildOptimalArmy() {
+        SplittableRandom random = new SplittableRandom(23);
+        for (int round = 0; round < 200; round++) {
+            List<Unit> roster = randomRoster(random, random.nextInt(0, 25), 300);
+            int maxPoints = random.nextInt(0, 3000);
+            Army expected = ArmyOptimizer.buildOptimalArmy(roster, maxPoints);
+            Army actual = new ConstrainedOptimizer(roster, List.of()).optimize(maxPoints);
+            assertNotNull(actual);
+            assertEquals(effectiveness(expected), effectiveness(actual));
+            assertTrue(actual.calculateTotalPoints() <= maxPoints);
+        }
+    }
+
+    @Test
+    void constrainedMatchesBruteForce() {
+        SplittableRandom random = new SplittableRandom(230);
+        for (int round = 0; round < 400; round++) {
+            List<Unit> roster = randomRoster(random, random.nextInt(0, 12), 200);
+            int maxPoints = random.nextInt(0, 1200);
+            List<ArmyRule> rules = randomRules(random);
+
+            Army army = new ConstrainedOptimizer(roster, rules).optimize(maxPoints);
+            int best = bruteForce(roster, rules, maxPoints);
+            if (best < 0) {
+                assertNull(army, "rules " + rules);
+            } else {
+                assertNotNull(army, "rules " + rules);
+                assertEquals(best, effectiveness(army), "rules " + rules);
+                assertTrue(army.calculateTotalPoints() <= maxPoints);
+                for (ArmyRule rule : rules) {
+                    assertTrue(follows(army, rule), "rule " + rule);
+                }
+            }
+        }
+    }
+
+    @Test
+    void negativeBudgetBuildsNoArmy() {
+        List<Unit> roster = randomRoster(new SplittableRandom(1), 5, 100);
+        assertNull(new ConstrainedOptimizer(roster, List.of()).optimize(-1));
+        assertNull(new ConstrainedOptimizer(roster, List.of(ArmyRule.atMost("hero", 1))).optimize(-1));
+    }
+
+    // Returns the effectiveness of the best army within the budget that follows every rule, trying every
+    // subset of the roster, or -1 if no army does.
+    private static int bruteForce(List<Unit> roster, List<ArmyRule> rules, int maxPoints) {
+        int best = -1;
+        for (int subset = 0; subset < 1 << roster.size(); subset++) {
+            Army army = new Army();
+            for (int i = 0; i < roster.size(); i++) {
+                if ((subset & 1 << i) != 0) {
+                    army.addUnit(roster.get(i));
+                }
+            }
+            if (army.calculateTotalPoints() > maxPoints) {
+                continue;
+            }
+            boolean allowed = true;
+            for (ArmyRule rule : rules) {
+                allowed &= follows(army, rule);
+            }
+            if (allowed) {
+                best = Math.max(best, effectiveness(army));
+            }
+        }
+        return best;
+    }
+
+    // Returns the summed effectiveness of the army's units, without the scaling of calculateTotalEffectiveness,
+    // so that armies differing by a single point of effectiveness are told apart.
+    private static int effectiveness(Army army) {
+        int total = 0;
+        for (Unit unit : army.getSelectedUnits()) {
+            total += unit.profile().effectiveness;
+        }
+        return total;
+    }
+
+    // Checks that the army has between the rule's minimum and maximum units counted by the rule, counting
+    // them here rather than with the rule's own check.
+    private static boolean follows(Army army, ArmyRule rule) {
+        int count = 0;
+        for (Unit unit : army.getSelectedUnits()) {
+            if (rule.role == null || unit.getRoles().contains(rule.role)) {
+                count++;
+            }
+        }
+        return count >= rule.min && count <= rule.max;
+    }
+
+    private static List<ArmyRule> randomRules(SplittableRandom random) {
+        List<ArmyRule> rules = new ArrayList<>();
+        int count = random.nextInt(0, 4);
+        for (int r = 0; r < count; r++) {
+            String role = random.nextInt(4) == 0 ? null : ROLES[random.nextInt(ROLES.length)];
+            int min = random.nextInt(0, 3);
+            int max = random.nextBoolean() ? ArmyRule.UNLIMITED : min + random.nextInt(0, 4);
+            rules.add(new ArmyRule(role, min, max));
+        }
+        return rules;
+    }
+
+    private static List<Unit> randomRoster(SplittableRandom random, int size, int maxCost) {
+        List<Unit> roster = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Unit unit = new Unit("Unit " + i, random.nextInt(1, 10), random.nextInt(1, 12),
+                                 random.nextInt(0, 6) * 0.1, random.nextInt(1, 10) * 0.1, random.nextInt(1, 10),
+                                 random.nextInt(1, 10) * 0.1, random.nextInt(1, 10), random.nextInt(1, maxCost));
+            for (String role : ROLES) {
+                if (random.nextInt(3) == 0) {
+                    unit.addRole(role);
+                }
+            }
+            roster.add(unit);
+        }
+        return roster;
+    }
+
+    private static void assertSameUnits(Army expected, Army actual) {
+        List<Unit> expectedUnits = expected.getSelectedUnits();
+        List<Unit> actualUnits = actual.getSelectedUnits();
+        assertEquals(expectedUnits.size(), actualUnits.size());
+        for (int i = 0; i < expectedUnits.size(); i++) {
+            assertTrue(expectedUnits.get(i) == actualUnits.get(i), "unit " + i);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package armybuilder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+/**
+ * Class to test that an army table file holds the same army as buildOptimalArmy for every budget, and that
+ * it refuses to open for a different codex or when it is damaged.
+ */
+class ArmyTableFileTest {
+
+    private static final int MAX_POINTS = 1500;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void tableHoldsTheOptimalArmyOfEveryBudget() throws IOException {
+        List<Unit> units = new Codex().getUnits();
+        Path path = directory.resolve("codex.armt");
+        ArmyTableFile.write(units, MAX_POINTS, path);
+
+        MappedArmyTable table = ArmyTableFile.open(path, units);
+        assertEquals(MAX_POINTS, table.getMaxPoints());
+        for (int points = 0; points <= MAX_POINTS; points++) {
+            Army expected = ArmyOptimizer.buildOptimalArmy(units, points);
+            Army actual = table.getArmy(points);
+            assertEquals(expected.getSelectedUnits(), actual.getSelectedUnits(), "budget " + points);
+
+            int effectiveness = 0;
+            for (Unit unit : expected.getSelectedUnits()) {
+                effectiveness += unit.profile().effectiveness;
+            }
+            assertEquals(effectiveness, table.getEffectiveness(points), "budget " + points);
+        }
+        assertThrows(IllegalArgumentException.class, () -> table.getArmy(MAX_POINTS + 1));
+    }
+
+    @Test
+    void tableRefusesADifferentCodex() throws IOException {
+        List<Unit> units = new Codex().getUnits();
+        Path path = directory.resolve("codex.armt");
+        ArmyTableFile.write(units, MAX_POINTS, path);
+
+        List<Unit> changedStats = new Codex().getUnits();
+        changedStats.set(3, new Unit(units.get(3).name, 6, 6, 0.7, 0.65, 10, 0.6, 8, 55));
+        assertDifferentCodex(path, changedStats);
+
+        List<Unit> changedRoles = new Codex().getUnits();
+        changedRoles.get(0).addRole("hero");
+        assertDifferentCodex(path, changedRoles);
+
+        List<Unit> reordered = new Codex().getUnits();
+        Collections.swap(reordered, 0, 1);
+        assertDifferentCodex(path, reordered);
+
+        List<Unit> shorter = new ArrayList<>(new Codex().getUnits());
+        shorter.remove(shorter.size() - 1);
+        assertDifferentCodex(path, shorter);
+
+        // An equal codex built separately opens the table.
+        ArmyTableFile.open(path, new Codex().getUnits());
+    }
+
+    @Test
+    void damagedTableIsRejected() throws IOException {
+        List<Unit> units = new Codex().getUnits();
+        Path path = directory.resolve("codex.armt");
+        ArmyTableFile.write(units, MAX_POINTS, path);
+        byte[] bytes = Files.readAllBytes(path);
+        Path damaged = directory.resolve("damaged.armt");
+
+        for (int length : new int[] {0, 4, ArmyTableFile.HEADER_BYTES - 1, ArmyTableFile.HEADER_BYTES,
+                                     bytes.length / 2, bytes.length - 1}) {
+            Files.write(damaged, Arrays.copyOf(bytes, length));
+            assertThrows(IOException.class, () -> ArmyTableFile.open(damaged, units), "length " + length);
+        }
+
+        for (int offset : new int[] {0, 4}) {
+            byte[] copy = bytes.clone();
+            ByteBuffer.wrap(copy).putInt(offset, -1);
+            Files.write(damaged, copy);
+            assertThrows(IOException.class, () -> ArmyTableFile.open(damaged, units), "offset " + offset);
+        }
+    }
+
+    private static void assertDifferentCodex(Path path, List<Unit> units) {
+        IOException e = assertThrows(IOException.class, () -> ArmyTableFile.open(path, units));
+        assertTrue(e.getMessage().contains("different codex"), e.getMessage());
+    }
+}
@@ -0,0 +1,180 @@
+package armybuilder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+/**
+ * Class to test that a battle aggregation gives the same statistics whatever the pool, however often it is
+ * interrupted and resumed from its snapshot, and that damaged or mismatched snapshots are rejected.
+ */
+class BattleAggregatorTest {
+
+    private static final long SEED = 22;
+    private static final long TOTAL_BATTLES = 4L * BattleAggregator.BATTLES_PER_CHUNK;
+
+    @TempDir
+    Path directory;
+
+    private final Army armyA = ArmyOptimizer.buildOptimalArmy(new Codex().getUnits(), 500);
+    private final Army armyB = ArmyOptimizer.buildOptimalArmy(new Codex().getUnits(), 450);
+    private final List<Battlefield> battlefields = List.of(new Battlefield(0, 10), new Battlefield(5, 5),
+                                                           new Battlefield(10, 0));
+    private final ForkJoinPool pool = new ForkJoinPool(3);
+
+    @AfterEach
+    void shutDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void statisticsDoNotDependOnThePool() throws IOException {
+        byte[] expected = uninterrupted();
+        BattleAggregator aggregator = new BattleAggregator(armyA, armyB, battlefields, SEED, null);
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            assertArrayEquals(expected, bytes(aggregator.run(TOTAL_BATTLES, single, null)));
+        } finally {
+            single.shutdown();
+        }
+
+        BattleStatistics statistics = new BattleAggregator(armyA, armyB, battlefields, SEED, null).run(TOTAL_BATTLES);
+        assertEquals(TOTAL_BATTLES, statistics.getBattles());
+        long perBattlefield = 0;
+        for (Battlefield battlefield : battlefields) {
+            perBattlefield += statistics.getBattles(battlefield);
+        }
+        assertEquals(TOTAL_BATTLES, perBattlefield);
+    }
+
+    @Test
+    void resumeAfterCancelledSegmentMatchesUninterruptedRun() throws IOException {
+        byte[] expected = uninterrupted();
+        Path snapshot = directory.resolve("battles.snapshot");
+
+        BattleAggregator first = new BattleAggregator(armyA, armyB, battlefields, SEED, snapshot);
+        first.setChunksPerSegment(1);
+        first.run(TOTAL_BATTLES, pool, statistics -> first.cancel());
+        assertEquals(BattleAggregator.BATTLES_PER_CHUNK, first.getCompletedBattles());
+
+        BattleAggregator resumed = new BattleAggregator(armyA, armyB, battlefields, SEED, snapshot);
+        assertEquals(BattleAggregator.BATTLES_PER_CHUNK, resumed.getCompletedBattles());
+        assertArrayEquals(expected, bytes(resumed.run(TOTAL_BATTLES, pool, null)));
+        assertFalse(Files.exists(snapshot.resolveSibling(snapshot.getFileName() + ".tmp")));
+    }
+
+    @Test
+    void resumeAfterCancelDuringAChunkMatchesUninterruptedRun() throws Exception {
+        byte[] expected = uninterrupted();
+        Path snapshot = directory.resolve("battles.snapshot");
+
+        // Cancels at whatever point the run has reached, which is usually part way through a chunk.
+        BattleAggregator first = new BattleAggregator(armyA, armyB, battlefields, SEED, snapshot);
+        first.setChunksPerSegment(1);
+        Thread runner = new Thread(() -> {
+            try {
+                first.run(TOTAL_BATTLES, pool, null);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        runner.start();
+        Thread.sleep(20);
+        first.cancel();
+        runner.join();
+
+        long completed = first.getCompletedBattles();
+        assertEquals(0, completed % BattleAggregator.BATTLES_PER_CHUNK);
+        assertEquals(completed, first.getStatistics().getBattles());
+
+        BattleAggregator resumed = new BattleAggregator(armyA, armyB, battlefields, SEED, snapshot);
+        assertEquals(completed, resumed.getCompletedBattles());
+        assertArrayEquals(expected, bytes(resumed.run(TOTAL_BATTLES, pool, null)));
+    }
+
+    @Test
+    void leftoverTemporarySnapshotIsIgnored() throws IOException {
+        byte[] expected = uninterrupted();
+        Path snapshot = directory.resolve("battles.snapshot");
+        BattleAggregator first = new BattleAggregator(armyA, armyB, battlefields, SEED, snapshot);
+        first.setChunksPerSegment(1);
+        first.run(BattleAggregator.BATTLES_PER_CHUNK, pool, null);
+
+        // A crash while writing the next snapshot leaves a partial temporary file behind.
+        Files.write(snapshot.resolveSibling(snapshot.getFileName() + ".tmp"), new byte[] {1, 2, 3});
+
+        BattleAggregator resumed = new BattleAggregator(armyA, armyB, battlefields, SEED, snapshot);
+        assertArrayEquals(expected, bytes(resumed.run(TOTAL_BATTLES, pool, null)));
+    }
+
+    @Test
+    void damagedOrMismatchedSnapshotIsRejected() throws IOException {
+        Path snapshot = directory.resolve("battles.snapshot");
+        BattleAggregator first = new BattleAggregator(armyA, armyB, battlefields, SEED, snapshot);
+        first.run(BattleAggregator.BATTLES_PER_CHUNK, pool, null);
+        byte[] bytes = Files.readAllBytes(snapshot);
+
+        assertRejected(snapshot, "different", armyA, armyB, battlefields, SEED + 1);
+        assertRejected(snapshot, "different", armyB, armyA, battlefields, SEED);
+        assertRejected(snapshot, "different", armyA, armyB, battlefields.subList(0, 2), SEED);
+
+        for (int length : new int[] {0, 6, 20, bytes.length / 2, bytes.length - 1}) {
+            Files.write(snapshot, Arrays.copyOf(bytes, length));
+            assertRejected(snapshot, "", armyA, armyB, battlefields, SEED);
+        }
+
+        byte[] wrongMagic = bytes.clone();
+        ByteBuffer.wrap(wrongMagic).putInt(0, 0);
+        Files.write(snapshot, wrongMagic);
+        assertRejected(snapshot, "not a battle statistics snapshot", armyA, armyB, battlefields, SEED);
+
+        byte[] wrongVersion = bytes.clone();
+        ByteBuffer.wrap(wrongVersion).putInt(4, BattleAggregator.VERSION + 1);
+        Files.write(snapshot, wrongVersion);
+        assertRejected(snapshot, "unsupported snapshot version", armyA, armyB, battlefields, SEED);
+    }
+
+    @Test
+    void continuingPastAPartialChunkIsRefused() throws IOException {
+        BattleAggregator aggregator = new BattleAggregator(armyA, armyB, battlefields, SEED, null);
+        aggregator.run(1000, pool, null);
+        assertEquals(1000, aggregator.getCompletedBattles());
+
+        assertThrows(IllegalStateException.class, () -> aggregator.run(TOTAL_BATTLES, pool, null));
+    }
+
+    private static void assertRejected(Path snapshot, String message, Army armyA, Army armyB,
+                                       List<Battlefield> battlefields, long seed) {
+        IOException e = assertThrows(IOException.class,
+                                     () -> new BattleAggregator(armyA, armyB, battlefields, seed, snapshot));
+        assertTrue(e.getMessage().contains(message), e.getMessage());
+    }
+
+    // Returns the statistics of a run that is never interrupted, as bytes.
+    private byte[] uninterrupted() throws IOException {
+        return bytes(new BattleAggregator(armyA, armyB, battlefields, SEED, null).run(TOTAL_BATTLES, pool, null));
+    }
+
+    private static byte[] bytes(BattleStatistics statistics) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        statistics.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,116 @@
+package armybuilder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+/**
+ * Class to test that battles streamed to a battle log file are read back unchanged and replay to the
+ * outcomes they were fought with, and that damaged logs are rejected.
+ */
+class BattleLogTest {
+
+    // Enough battles for the log to fill the stream buffer several times.
+    private static final int BATTLES = 2000;
+
+    @TempDir
+    Path directory;
+
+    private final Army armyA = ArmyOptimizer.buildOptimalArmy(new Codex().getUnits(), 1000);
+    private final Army armyB = ArmyOptimizer.buildOptimalArmy(new Codex().getUnits(), 900);
+
+    @Test
+    void streamedLogReadsBackAndReplays() throws IOException {
+        Path path = directory.resolve("battles.log");
+        List<BattleOutcome> outcomes = fight(path, BATTLES, 13);
+        BattleLog log = BattleLog.read(path);
+        assertTrue(log.size() > 2 * BattleLog.STREAM_BUFFER_EVENTS, "log too small: " + log.size());
+
+        // The same seed gives the same events when the log is kept in memory.
+        BattleLog memoryLog = new BattleLog();
+        BattleKernel kernel = new BattleKernel();
+        kernel.load(armyA, armyB);
+        SplittableRandom random = new SplittableRandom(13);
+        for (int battle = 0; battle < BATTLES; battle++) {
+            kernel.run(random, memoryLog);
+        }
+        assertEquals(memoryLog.size(), log.size());
+        for (int i = 0; i < log.size(); i++) {
+            assertEquals(memoryLog.getEvent(i), log.getEvent(i), "event " + i);
+        }
+
+        int event = 0;
+        for (int battle = 0; battle < BATTLES; battle++) {
+            BattleReplay replay = new BattleReplay(armyA, armyB, log, event);
+            assertEquals(outcomes.get(battle), replay.run(), "battle " + battle);
+            event = replay.getNextEvent();
+        }
+        assertEquals(log.size(), event);
+    }
+
+    @Test
+    void emptyLogReadsBack() throws IOException {
+        Path path = directory.resolve("battles.log");
+        BattleLog.streamTo(path).close();
+
+        assertEquals(0, BattleLog.read(path).size());
+    }
+
+    @Test
+    void logWithPartialEventIsRejected() throws IOException {
+        Path path = directory.resolve("battles.log");
+        fight(path, 10, 14);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertThrows(IOException.class, () -> BattleLog.read(path));
+    }
+
+    @Test
+    void truncatedLogStopsTheReplay() throws IOException {
+        Path path = directory.resolve("battles.log");
+        fight(path, 1, 15);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - Long.BYTES));
+
+        BattleReplay replay = new BattleReplay(armyA, armyB, BattleLog.read(path), 0);
+        assertThrows(IllegalStateException.class, replay::run);
+    }
+
+    @Test
+    void replayWithOtherArmiesIsRejected() throws IOException {
+        Path path = directory.resolve("battles.log");
+        fight(path, 1, 16);
+        Army other = ArmyOptimizer.buildOptimalArmy(new Codex().getUnits(), 300);
+
+        BattleReplay replay = new BattleReplay(other, other, BattleLog.read(path), 0);
+        assertThrows(IllegalStateException.class, replay::run);
+    }
+
+    // Fights the given number of battles between the test armies, streaming them to a log file, and
+    // returns their outcomes.
+    private List<BattleOutcome> fight(Path path, int battles, long seed) throws IOException {
+        List<BattleOutcome> outcomes = new ArrayList<>();
+        BattleKernel kernel = new BattleKernel();
+        kernel.load(armyA, armyB);
+        SplittableRandom random = new SplittableRandom(seed);
+        try (BattleLog log = BattleLog.streamTo(path)) {
+            for (int battle = 0; battle < battles; battle++) {
+                outcomes.add(kernel.run(random, log));
+            }
+        }
+        return outcomes;
+    }
+}
@@ -0,0 +1,170 @@
+package armybuilder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+/**
+ * Class to test that codex units survive a round trip through the text and binary codex files, and that
+ * damaged files are rejected when they are read or opened.
+ */
+class CodexFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void csvRoundTripKeepsEveryUnit() throws IOException {
+        List<Unit> units = unitsWithAwkwardNames();
+        Path path = directory.resolve("codex.csv");
+        CodexLoader.writeCsv(units, path);
+
+        assertSameUnits(units, CodexLoader.readCsv(path).getUnits());
+    }
+
+    @Test
+    void binaryRoundTripKeepsEveryUnit() throws IOException {
+        List<Unit> units = unitsWithAwkwardNames();
+        Path csv = directory.resolve("codex.csv");
+        Path binary = directory.resolve("codex.cdx");
+        CodexLoader.writeCsv(units, csv);
+        CodexLoader.compile(csv, binary);
+
+        MappedCodex codex = CodexFile.open(binary);
+        assertEquals(units.size(), codex.size());
+        for (int i = 0; i < units.size(); i++) {
+            assertEquals(units.get(i).profile().effectiveness, codex.getEffectiveness(i));
+        }
+        assertSameUnits(units, codex.toCodex().getUnits());
+    }
+
+    @Test
+    void csvHeaderIsFoundAfterCommentsAndBlankLines() throws IOException {
+        Path path = directory.resolve("codex.csv");
+        Files.writeString(path, "# Units of the test codex\n\n"
+            + "Name,Speed,Wounds,Armor,ShootingAccuracy,ShootingDamage,CloseCombatAccuracy,CloseCombatDamage,PointCost\n"
+            + "Spartan,8,12,0.95,0.9,20,0.85,15,150\n"
+            + "\"Nameless Spartan\",8,12,0.95,0.9,20,0.85,15,150,infantry;hero\n");
+
+        List<Unit> units = CodexLoader.readCsv(path).getUnits();
+        assertEquals(2, units.size());
+        assertEquals("Spartan", units.get(0).name);
+        assertEquals("", units.get(0).joinRoles());
+        assertEquals("Nameless Spartan", units.get(1).name);
+        assertEquals("hero;infantry", units.get(1).joinRoles());
+    }
+
+    @Test
+    void csvWithoutHeaderIsRead() throws IOException {
+        Path path = directory.resolve("codex.csv");
+        Files.writeString(path, "Spartan,8,12,0.95,0.9,20,0.85,15,150\n");
+
+        assertEquals(1, CodexLoader.readCsv(path).getUnits().size());
+    }
+
+    @Test
+    void malformedCsvLinesAreRejected() throws IOException {
+        Path path = directory.resolve("codex.csv");
+        for (String line : List.of("Spartan,8,12,0.95,0.9,20,0.85,15",
+                                   "Spartan,8,12,0.95,0.9,20,0.85,15,150,infantry,extra",
+                                   "Spartan,eight,12,0.95,0.9,20,0.85,15,150",
+                                   "\"Spartan,8,12,0.95,0.9,20,0.85,15,150",
+                                   "\"Spartan\" II,8,12,0.95,0.9,20,0.85,15,150")) {
+            Files.writeString(path, "Grunt,5,5,0.6,0.5,8,0.4,6,40\n" + line + "\n");
+            IOException e = assertThrows(IOException.class, () -> CodexLoader.readCsv(path), line);
+            assertEquals(path + ":2", e.getMessage().substring(0, path.toString().length() + 2), line);
+        }
+    }
+
+    @Test
+    void namesWithLineBreaksAreNotWritten() {
+        List<Unit> units = List.of(new Unit("Two\nLines", 8, 12, 0.95, 0.9, 20, 0.85, 15, 150));
+
+        assertThrows(IllegalArgumentException.class, () -> CodexLoader.writeCsv(units, directory.resolve("codex.csv")));
+    }
+
+    @Test
+    void truncatedBinaryCodexIsRejectedOnOpen() throws IOException {
+        Path path = directory.resolve("codex.cdx");
+        CodexFile.write(unitsWithAwkwardNames(), path);
+        byte[] bytes = Files.readAllBytes(path);
+
+        Path truncated = directory.resolve("truncated.cdx");
+        for (int length = 0; length < bytes.length; length++) {
+            Files.write(truncated, Arrays.copyOf(bytes, length));
+            assertThrows(IOException.class, () -> CodexFile.open(truncated), "length " + length);
+        }
+    }
+
+    @Test
+    void damagedBinaryCodexHeaderIsRejected() throws IOException {
+        Path path = directory.resolve("codex.cdx");
+        CodexFile.write(new Codex().getUnits(), path);
+        byte[] bytes = Files.readAllBytes(path);
+
+        assertRejected(bytes, 0, 0x12345678, "not a binary codex file");
+        assertRejected(bytes, 4, CodexFile.VERSION + 1, "unsupported binary codex version");
+        assertRejected(bytes, 8, Integer.MAX_VALUE, "truncated binary codex file");
+        assertRejected(bytes, 12, -1, "truncated binary codex file");
+
+        // Makes the second string start before the first one.
+        int unitCount = ByteBuffer.wrap(bytes).getInt(8);
+        int stringTable = CodexFile.HEADER_BYTES + unitCount * (3 * Double.BYTES + 8 * Integer.BYTES);
+        assertRejected(bytes, stringTable + Integer.BYTES, -1, "corrupt string table");
+    }
+
+    // Overwrites the int at the given offset of a copy of the file and checks that opening it fails.
+    private void assertRejected(byte[] bytes, int offset, int value, String message) throws IOException {
+        byte[] damaged = bytes.clone();
+        ByteBuffer.wrap(damaged).putInt(offset, value);
+        Path path = directory.resolve("damaged.cdx");
+        Files.write(path, damaged);
+
+        IOException e = assertThrows(IOException.class, () -> CodexFile.open(path));
+        assertTrue(e.getMessage().contains(message), e.getMessage());
+    }
+
+    // Returns the built-in codex units along with units whose names need quoting in a text codex.
+    private static List<Unit> unitsWithAwkwardNames() {
+        List<Unit> units = new ArrayList<>(new Codex().getUnits());
+        String[] names = {"Grunt, Minor", "\"Lucky\" Jackal", "#1 Marine", " Padded ", "Nameless Spartan", ""};
+        for (String name : names) {
+            Unit unit = new Unit(name, 6, 7, 0.75, 0.7, 10, 0.5, 8, 60);
+            unit.addRole("infantry");
+            units.add(unit);
+        }
+        return units;
+    }
+
+    private static void assertSameUnits(List<Unit> expected, List<Unit> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Unit a = expected.get(i);
+            Unit b = actual.get(i);
+            String unit = "unit " + i + " (" + a.name + ")";
+            assertEquals(a.name, b.name, unit);
+            assertEquals(a.speed, b.speed, unit);
+            assertEquals(a.wounds, b.wounds, unit);
+            assertEquals(a.armor, b.armor, unit);
+            assertEquals(a.shootingAccuracy, b.shootingAccuracy, unit);
+            assertEquals(a.shootingDamage, b.shootingDamage, unit);
+            assertEquals(a.closeCombatAccuracy, b.closeCombatAccuracy, unit);
+            assertEquals(a.closeCombatDamage, b.closeCombatDamage, unit);
+            assertEquals(a.pointCost, b.pointCost, unit);
+            assertEquals(a.getRoles(), b.getRoles(), unit);
+            assertEquals(a.profile().effectiveness, b.profile().effectiveness, unit);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package armybuilder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Class to test that resolving a CombatBatch with the Vector API, with the scalar loop and with
+ * UnitCombat.resolve one combat at a time all give the same results.
+ */
+class CombatBatchTest {
+
+    // Batch sizes around the vector widths, so the tails left to the scalar loop are covered too.
+    private static final int[] SIZES = {0, 1, 2, 3, 4, 5, 7, 8, 9, 15, 16, 17, 31, 32, 33, 63, 64, 65, 127, 1000};
+
+    private static final int BATCHES_PER_SIZE = 20;
+
+    @Test
+    void vectorModuleIsLoaded() {
+        assertTrue(CombatBatch.VECTORIZED, "tests must run with --add-modules jdk.incubator.vector");
+    }
+
+    @Test
+    void vectorAndScalarResolveUnitCombatsAlike() {
+        SplittableRandom random = new SplittableRandom(20);
+        for (int size : SIZES) {
+            for (int round = 0; round < BATCHES_PER_SIZE; round++) {
+                Unit[] unitsA = new Unit[size];
+                Unit[] unitsB = new Unit[size];
+                int[] distances = new int[size];
+                CombatBatch vector = new CombatBatch(size);
+                CombatBatch scalar = new CombatBatch(size);
+                for (int i = 0; i < size; i++) {
+                    unitsA[i] = randomUnit(random);
+                    unitsB[i] = random.nextInt(8) == 0 ? unitsA[i] : randomUnit(random);
+                    distances[i] = random.nextInt(12);
+                    vector.add(unitsA[i], unitsB[i], distances[i]);
+                    scalar.add(unitsA[i], unitsB[i], distances[i]);
+                }
+                VectorCombat.resolve(vector, size);
+                scalar.resolveScalar(0, size);
+
+                assertSameResults(vector, scalar, size);
+                for (int i = 0; i < size; i++) {
+                    assertEquals(UnitCombat.resolve(unitsA[i], unitsB[i], distances[i]), scalar.getResult(i),
+                                 "combat " + i + " of " + size);
+                    assertEquals(Math.abs(unitsA[i].profile().effectiveness - unitsB[i].profile().effectiveness),
+                                 scalar.getDifference(i), "combat " + i + " of " + size);
+                }
+            }
+        }
+    }
+
+    @Test
+    void vectorAndScalarResolveRawStatsAlike() {
+        SplittableRandom random = new SplittableRandom(21);
+        for (int size : SIZES) {
+            for (int round = 0; round < BATCHES_PER_SIZE; round++) {
+                CombatBatch vector = new CombatBatch(size);
+                CombatBatch scalar = new CombatBatch(size);
+                for (int i = 0; i < size; i++) {
+
+                    // Small ranges make ties common, and the full range covers negative stats.
+                    int bound = random.nextBoolean() ? 4 : Integer.MAX_VALUE;
+                    int[] stats = new int[6];
+                    for (int s = 0; s < stats.length; s++) {
+                        stats[s] = bound == Integer.MAX_VALUE ? random.nextInt(-1_000_000, 1_000_000) : random.nextInt(bound);
+                    }
+                    int distance = random.nextInt(-2, 12);
+                    vector.add(stats[0], stats[1], stats[2], stats[3], stats[4], stats[5], distance);
+                    scalar.add(stats[0], stats[1], stats[2], stats[3], stats[4], stats[5], distance);
+                }
+                VectorCombat.resolve(vector, size);
+                scalar.resolveScalar(0, size);
+
+                assertSameResults(vector, scalar, size);
+            }
+        }
+    }
+
+    @Test
+    void resolveCountsAndFillsEveryCombat() {
+        SplittableRandom random = new SplittableRandom(22);
+        CombatBatch batch = new CombatBatch(37);
+        Unit[] unitsA = new Unit[37];
+        Unit[] unitsB = new Unit[37];
+        for (int i = 0; i < 37; i++) {
+            unitsA[i] = randomUnit(random);
+            unitsB[i] = randomUnit(random);
+            batch.add(unitsA[i], unitsB[i], i % 12);
+        }
+        batch.resolve();
+
+        for (int i = 0; i < 37; i++) {
+            CombatResult result = UnitCombat.resolve(unitsA[i], unitsB[i], i % 12);
+            assertEquals(result, batch.getResult(i));
+            double difference = Math.abs(unitsA[i].profile().effectiveness - unitsB[i].profile().effectiveness);
+            assertEquals(damageFraction(result, true) * difference, batch.getDamageA(i));
+            assertEquals(damageFraction(result, false) * difference, batch.getDamageB(i));
+        }
+    }
+
+    // Checks that two batches hold bit for bit the same results, differences and damage.
+    private static void assertSameResults(CombatBatch expected, CombatBatch actual, int size) {
+        for (int i = 0; i < size; i++) {
+            String combat = "combat " + i + " of " + size;
+            assertEquals(expected.getResult(i), actual.getResult(i), combat);
+            assertEquals(expected.getDifference(i), actual.getDifference(i), combat);
+            assertEquals(Double.doubleToRawLongBits(expected.getDamageA(i)),
+                         Double.doubleToRawLongBits(actual.getDamageA(i)), combat);
+            assertEquals(Double.doubleToRawLongBits(expected.getDamageB(i)),
+                         Double.doubleToRawLongBits(actual.getDamageB(i)), combat);
+        }
+    }
+
+    // Returns the fraction of the difference in effectiveness that unit A, or unit B, loses for the result.
+    private static double damageFraction(CombatResult result, boolean unitA) {
+        switch (result) {
+            case A_WINS:
+                return unitA ? 0.2 : 0.5;
+            case B_WINS:
+                return unitA ? 0.5 : 0.2;
+            default:
+                return 0.1;
+        }
+    }
+
+    static Unit randomUnit(SplittableRandom random) {
+        return new Unit("Unit", random.nextInt(1, 10), random.nextInt(1, 12), random.nextInt(0, 6) * 0.1,
+                        random.nextInt(1, 10) * 0.1, random.nextInt(1, 10), random.nextInt(1, 10) * 0.1,
+                        random.nextInt(1, 10), random.nextInt(10, 300));
+    }
+}